@@ -0,0 +1,157 @@
+package benchmarks;
+
+import models.Grid;
+import models.search.PathProcessors;
+import models.search.SearchContext;
+import models.search.SearchMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares any angle paths from Theta* with A* paths pulled tight afterwards, on the same queries
+ * as {@link SearchState}. Next to the time per query, the counters report the total length of the
+ * paths found in tenths of a cell, so dividing by the paths found gives the average length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnyAngleBenchmark {
+    /**
+     * A map, its queries and the context the searches run in.
+     */
+    @State(Scope.Thread)
+    public static class AnyAngleState {
+        /**
+         * The width and height of the map.
+         */
+        @Param({"256", "1024"})
+        public int size;
+
+        /**
+         * The kind of map searched.
+         */
+        @Param({"RANDOM_10", "RANDOM_25", "MAZE", "ROOMS"})
+        public MapType map;
+
+        /**
+         * The context reused by every query.
+         */
+        SearchContext context;
+
+        /**
+         * The start and goal of every query, and the index of the next one.
+         */
+        int[] starts, goals;
+        int next;
+
+        /**
+         * Creates the map, the context and the queries.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            Grid grid = map.create(size, 42);
+            context = new SearchContext(grid);
+
+            Random random = new Random(7);
+            starts = new int[SearchState.QUERIES];
+            goals = new int[SearchState.QUERIES];
+            for (int i = 0; i < SearchState.QUERIES; i++) {
+                starts[i] = MapType.randomOpenCell(grid, random);
+                goals[i] = MapType.randomOpenCell(grid, random);
+            }
+        }
+    }
+
+    /**
+     * The counts reported next to the time per query.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /**
+         * The number of queries that found a path.
+         */
+        public long pathsFound;
+
+        /**
+         * The length of every path found, in tenths of a cell.
+         */
+        public long pathLength;
+
+        /**
+         * Clears the counts before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            pathsFound = 0;
+            pathLength = 0;
+        }
+    }
+
+    /**
+     * Finds the next path with Theta*.
+     *
+     * @param state    The map and its queries.
+     * @param counters The counts to add the query to.
+     * @return The waypoints, so the search is not optimized away.
+     */
+    @Benchmark
+    public int[] thetaStar(AnyAngleState state, Counters counters) {
+        int query = state.next;
+        state.next = (query + 1) % SearchState.QUERIES;
+
+        int[] path = null;
+        if (state.context.run(SearchMode.THETA_STAR.getPathfinder(), state.starts[query], state.goals[query], true)) {
+            path = state.context.copyPath();
+        }
+        count(state, path, counters);
+        return path;
+    }
+
+    /**
+     * Finds the next path with A* and pulls it tight with {@link PathProcessors#STRING_PULL}.
+     *
+     * @param state    The map and its queries.
+     * @param counters The counts to add the query to.
+     * @return The waypoints, so the search is not optimized away.
+     */
+    @Benchmark
+    public int[] aStarStringPull(AnyAngleState state, Counters counters) {
+        int query = state.next;
+        state.next = (query + 1) % SearchState.QUERIES;
+
+        int[] path = null;
+        if (state.context.run(SearchMode.A_STAR.getPathfinder(), state.starts[query], state.goals[query], true)) {
+            path = PathProcessors.STRING_PULL.process(state.context.getGrid(), state.context.copyPath());
+        }
+        count(state, path, counters);
+        return path;
+    }
+
+    /**
+     * Adds a path to the counters.
+     *
+     * @param state    The map the path was found on.
+     * @param path     The waypoints of the path, or null if none was found.
+     * @param counters The counts to add the path to.
+     */
+    private static void count(AnyAngleState state, int[] path, Counters counters) {
+        if (path == null) {
+            return;
+        }
+
+        int width = state.context.getGrid().getWidth();
+        double length = 0;
+        for (int i = 1; i < path.length; i++) {
+            int xDiff = path[i] % width - path[i - 1] % width;
+            int yDiff = path[i] / width - path[i - 1] / width;
+            length += Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+        }
+        counters.pathsFound++;
+        counters.pathLength += Math.round(length * 10);
+    }
+}
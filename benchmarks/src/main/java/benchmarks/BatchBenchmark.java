@@ -0,0 +1,115 @@
+package benchmarks;
+
+import models.Grid;
+import models.Node;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import services.PathQuery;
+import services.PathService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a tick's worth of units heading to a few goals, first as one
+ * {@link Grid#performAStar(Node, Node, boolean)} call per unit and then as one batch on a
+ * {@link PathService}, which shares a search between the units of each goal. The score is in
+ * queries per second, since each invocation runs the whole batch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+    /**
+     * The number of queries in a batch.
+     */
+    public static final int QUERIES = 512;
+
+    /**
+     * The width and height of the map.
+     */
+    @Param({"256", "1024"})
+    public int size;
+
+    /**
+     * The kind of map searched.
+     */
+    @Param({"RANDOM_25", "ROOMS"})
+    public MapType map;
+
+    /**
+     * The number of goals the queries are spread over.
+     */
+    @Param({"4", "16", "512"})
+    public int goalCount;
+
+    /**
+     * The map searched, and the service running the batches on every core.
+     */
+    private Grid grid;
+    private PathService service;
+
+    /**
+     * The batch as queries.
+     */
+    private List<PathQuery> queries;
+
+    /**
+     * Creates the map, the service and the batch.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid = map.create(size, 42);
+        service = PathService.withThreadPool(grid, Runtime.getRuntime().availableProcessors());
+
+        Random random = new Random(7);
+        int[] goals = new int[goalCount];
+        for (int i = 0; i < goalCount; i++) {
+            goals[i] = MapType.randomOpenCell(grid, random);
+        }
+        queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(new PathQuery(MapType.randomOpenCell(grid, random), goals[i % goalCount]));
+        }
+    }
+
+    /**
+     * Shuts down the service's threads.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    /**
+     * Runs every query of the batch through {@link Grid#performAStar(Node, Node, boolean)} on this
+     * thread.
+     *
+     * @param blackhole Consumes the results, so the searches are not optimized away.
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void performAStarEach(Blackhole blackhole) {
+        int width = grid.getWidth();
+        for (PathQuery query : queries) {
+            blackhole.consume(grid.performAStar(grid.getNode(query.getStart() % width, query.getStart() / width),
+                    grid.getNode(query.getGoal() % width, query.getGoal() / width), true));
+        }
+    }
+
+    /**
+     * Runs the batch on the service and waits for it.
+     *
+     * @param blackhole Consumes the results, so the searches are not optimized away.
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void pathBatch(Blackhole blackhole) {
+        blackhole.consume(service.findPathBatch(queries, true).join());
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import models.Grid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to create a grid and place the obstacles of a map on it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GridConstructionBenchmark {
+    /**
+     * The width and height of the grid.
+     */
+    @Param({"64", "256", "1024", "4096"})
+    public int size;
+
+    /**
+     * The kind of map placed on the grid.
+     */
+    @Param({"RANDOM_10", "RANDOM_25", "MAZE", "ROOMS"})
+    public MapType map;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @return The grid, so the work is not optimized away.
+     */
+    @Benchmark
+    public Grid emptyGrid() {
+        return new Grid(size, size);
+    }
+
+    /**
+     * Creates a grid and places the obstacles of the map on it.
+     *
+     * @return The grid, so the work is not optimized away.
+     */
+    @Benchmark
+    public Grid filledGrid() {
+        return map.create(size, 42);
+    }
+}
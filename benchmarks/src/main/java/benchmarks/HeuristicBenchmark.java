@@ -0,0 +1,107 @@
+package benchmarks;
+
+import models.Grid;
+import models.search.AStarSearch;
+import models.search.Heuristics;
+import models.search.SearchContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the built in heuristics on A*, using the same queries as {@link SearchState}.
+ * <p>
+ * A tighter heuristic expands fewer cells, but may cost more to work out for each one. The
+ * expanded cells per query are reported through the {@link SearchLatencyBenchmark.Counters}, so
+ * both effects show up next to the time per query. {@link Heuristics#MANHATTAN} overestimates when
+ * diagonals are allowed, so its paths there may not be the shortest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeuristicBenchmark {
+    /**
+     * A map, its queries and a search using the heuristic being measured.
+     */
+    @State(Scope.Thread)
+    public static class HeuristicState {
+        /**
+         * The width and height of the map.
+         */
+        @Param({"256", "1024"})
+        public int size;
+
+        /**
+         * The kind of map searched.
+         */
+        @Param({"RANDOM_10", "RANDOM_25", "MAZE", "ROOMS"})
+        public MapType map;
+
+        /**
+         * Are diagonal steps allowed?
+         */
+        @Param({"true", "false"})
+        public boolean diagonals;
+
+        /**
+         * The heuristic the search uses.
+         */
+        @Param({"OCTILE", "MANHATTAN", "CHEBYSHEV", "EUCLIDEAN"})
+        public Heuristics heuristic;
+
+        /**
+         * The search using the heuristic, and the context it runs in.
+         */
+        AStarSearch search;
+        SearchContext context;
+
+        /**
+         * The start and goal of every query, and the index of the next one.
+         */
+        int[] starts, goals;
+        int next;
+
+        /**
+         * Creates the map, the search and the queries.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            Grid grid = map.create(size, 42);
+            search = new AStarSearch(heuristic);
+            context = new SearchContext(grid);
+
+            Random random = new Random(7);
+            starts = new int[SearchState.QUERIES];
+            goals = new int[SearchState.QUERIES];
+            for (int i = 0; i < SearchState.QUERIES; i++) {
+                starts[i] = MapType.randomOpenCell(grid, random);
+                goals[i] = MapType.randomOpenCell(grid, random);
+            }
+        }
+    }
+
+    /**
+     * Runs the next query.
+     *
+     * @param state    The map, its queries and the search.
+     * @param counters The counts to add the query to.
+     * @return True if a path was found, so the search is not optimized away.
+     */
+    @Benchmark
+    public boolean singleQuery(HeuristicState state, SearchLatencyBenchmark.Counters counters) {
+        int query = state.next;
+        state.next = (query + 1) % SearchState.QUERIES;
+
+        boolean found = state.context.run(state.search, state.starts[query], state.goals[query], state.diagonals);
+
+        counters.queries++;
+        counters.expandedNodes += state.context.getExpandedCount();
+        if (found) {
+            counters.pathsFound++;
+        }
+        return found;
+    }
+}
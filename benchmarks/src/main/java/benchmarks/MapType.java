@@ -0,0 +1,216 @@
+package benchmarks;
+
+import models.Grid;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * The kinds of maps the benchmarks run on. Every map is generated from a seed, so each run of a
+ * benchmark sees the same obstacles.
+ */
+public enum MapType {
+    /**
+     * Scattered obstacles covering about 10% of the map.
+     */
+    RANDOM_10 {
+        @Override
+        void fill(Grid grid, Random random) {
+            fillRandom(grid, random, 0.10);
+        }
+    },
+
+    /**
+     * Scattered obstacles covering about 25% of the map.
+     */
+    RANDOM_25 {
+        @Override
+        void fill(Grid grid, Random random) {
+            fillRandom(grid, random, 0.25);
+        }
+    },
+
+    /**
+     * A perfect maze with corridors one cell wide, so every path winds through most of the map.
+     */
+    MAZE {
+        @Override
+        void fill(Grid grid, Random random) {
+            fillMaze(grid, random);
+        }
+    },
+
+    /**
+     * Square rooms separated by walls, with one or two doors in each wall.
+     */
+    ROOMS {
+        @Override
+        void fill(Grid grid, Random random) {
+            fillRooms(grid, random, 16);
+        }
+    };
+
+    /**
+     * Creates a square map of this type.
+     *
+     * @param size The width and height of the map.
+     * @param seed The seed the obstacles are generated from.
+     * @return The new map.
+     */
+    public Grid create(int size, long seed) {
+        Grid grid = new Grid(size, size);
+        fill(grid, new Random(seed));
+        return grid;
+    }
+
+    /**
+     * Places the obstacles of this type on an empty grid.
+     *
+     * @param grid   The grid to fill.
+     * @param random The source of randomness.
+     */
+    abstract void fill(Grid grid, Random random);
+
+    /**
+     * Picks a random cell of the grid that is not an obstacle.
+     *
+     * @param grid   The grid to pick from.
+     * @param random The source of randomness.
+     * @return The id of the cell.
+     */
+    public static int randomOpenCell(Grid grid, Random random) {
+        int cells = grid.getWidth() * grid.getHeight();
+        int id;
+        do {
+            id = random.nextInt(cells);
+        } while (grid.isObstacle(id));
+        return id;
+    }
+
+    /**
+     * Makes every cell an obstacle with the given chance.
+     *
+     * @param grid    The grid to fill.
+     * @param random  The source of randomness.
+     * @param density The chance of a cell being an obstacle.
+     */
+    private static void fillRandom(Grid grid, Random random, double density) {
+        int cells = grid.getWidth() * grid.getHeight();
+        for (int id = 0; id < cells; id++) {
+            if (random.nextDouble() < density) {
+                grid.setObstacle(id, true);
+            }
+        }
+    }
+
+    /**
+     * Carves a maze out of a grid full of obstacles with a randomized depth first search. The
+     * rooms of the maze are the cells with even coordinates, and the walls between them are
+     * knocked down as the search walks from room to room.
+     *
+     * @param grid   The grid to fill.
+     * @param random The source of randomness.
+     */
+    private static void fillMaze(Grid grid, Random random) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        for (int id = 0; id < width * height; id++) {
+            grid.setObstacle(id, true);
+        }
+
+        int roomsX = (width + 1) / 2;
+        int roomsY = (height + 1) / 2;
+        boolean[] visited = new boolean[roomsX * roomsY];
+        int[] directions = {-1, 0, 1, 0, 0, -1, 0, 1};
+        int[] candidates = new int[4];
+
+        // The search keeps its own stack, since a recursive walk would overflow on large mazes.
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        visited[0] = true;
+        grid.setObstacle(0, false);
+        while (!stack.isEmpty()) {
+            int room = stack.peek();
+            int roomX = room % roomsX;
+            int roomY = room / roomsX;
+
+            int count = 0;
+            for (int d = 0; d < 4; d++) {
+                int nextX = roomX + directions[d * 2];
+                int nextY = roomY + directions[d * 2 + 1];
+                if (nextX >= 0 && nextX < roomsX && nextY >= 0 && nextY < roomsY
+                        && !visited[nextY * roomsX + nextX]) {
+                    candidates[count++] = d;
+                }
+            }
+
+            if (count == 0) {
+                stack.pop();
+                continue;
+            }
+
+            int d = candidates[random.nextInt(count)];
+            int nextX = roomX + directions[d * 2];
+            int nextY = roomY + directions[d * 2 + 1];
+            visited[nextY * roomsX + nextX] = true;
+            grid.setObstacle(grid.cellId(roomX * 2 + directions[d * 2], roomY * 2 + directions[d * 2 + 1]), false);
+            grid.setObstacle(grid.cellId(nextX * 2, nextY * 2), false);
+            stack.push(nextY * roomsX + nextX);
+        }
+    }
+
+    /**
+     * Splits the grid into square rooms with walls along every row and column that is a multiple
+     * of the room size, then opens one or two doors in each wall between two rooms.
+     *
+     * @param grid     The grid to fill.
+     * @param random   The source of randomness.
+     * @param roomSize The distance between walls.
+     */
+    private static void fillRooms(Grid grid, Random random, int roomSize) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (x % roomSize == 0 || y % roomSize == 0) {
+                    grid.setObstacle(grid.cellId(x, y), true);
+                }
+            }
+        }
+
+        for (int wallY = 0; wallY < height; wallY += roomSize) {
+            for (int wallX = 0; wallX < width; wallX += roomSize) {
+                // The wall below this corner runs down to the next corner, and the wall to its
+                // right runs across to the next corner. Walls on the edge of the map stay shut.
+                if (wallX > 0) {
+                    openDoors(grid, random, wallX, wallY + 1, 0, Math.min(roomSize - 1, height - wallY - 1));
+                }
+                if (wallY > 0) {
+                    openDoors(grid, random, wallX + 1, wallY, 1, Math.min(roomSize - 1, width - wallX - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens one or two doors in a wall segment.
+     *
+     * @param grid       The grid to change.
+     * @param random     The source of randomness.
+     * @param x          The X coordinate of the first cell of the segment.
+     * @param y          The Y coordinate of the first cell of the segment.
+     * @param horizontal 1 if the segment runs along the X axis, 0 if it runs along the Y axis.
+     * @param length     The number of cells in the segment.
+     */
+    private static void openDoors(Grid grid, Random random, int x, int y, int horizontal, int length) {
+        if (length <= 0) {
+            return;
+        }
+
+        int doors = 1 + random.nextInt(2);
+        for (int i = 0; i < doors; i++) {
+            int offset = random.nextInt(length);
+            grid.setObstacle(grid.cellId(x + offset * horizontal, y + offset * (1 - horizontal)), false);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import models.Grid;
+import models.search.AStarSearch;
+import models.search.SearchContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how much a search allocates, once with a {@link SearchContext} reused by every query and
+ * once with a new context for each query. Run it with {@code -prof gc}: the reused context should
+ * show a {@code gc.alloc.rate.norm} of about 0 bytes per query, while a new context allocates its
+ * arrays, a few bytes for every cell of the map, each time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchAllocationBenchmark {
+    /**
+     * The number of queries generated for the map.
+     */
+    private static final int QUERIES = 256;
+
+    /**
+     * A map, its queries and the context reused between them.
+     */
+    @State(Scope.Thread)
+    public static class AllocationState {
+        /**
+         * The width and height of the map.
+         */
+        @Param({"512"})
+        public int size;
+
+        /**
+         * The kind of map searched.
+         */
+        @Param({"RANDOM_25"})
+        public MapType map;
+
+        /**
+         * The map searched.
+         */
+        Grid grid;
+
+        /**
+         * The start and goal of every query.
+         */
+        int[] starts, goals;
+
+        /**
+         * The search run by every query.
+         */
+        AStarSearch search;
+
+        /**
+         * The context reused by every query.
+         */
+        SearchContext context;
+
+        /**
+         * The index of the next query.
+         */
+        int next;
+
+        /**
+         * Creates the map, picks the queries and creates the reused context.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            grid = map.create(size, 42);
+
+            Random random = new Random(7);
+            starts = new int[QUERIES];
+            goals = new int[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                starts[i] = MapType.randomOpenCell(grid, random);
+                goals[i] = MapType.randomOpenCell(grid, random);
+            }
+
+            search = new AStarSearch();
+            context = new SearchContext(grid);
+        }
+
+        /**
+         * Moves on to the next query.
+         *
+         * @return The index of the query to run.
+         */
+        int nextQuery() {
+            int query = next;
+            next = (query + 1) % QUERIES;
+            return query;
+        }
+    }
+
+    /**
+     * Runs the next query in the reused context.
+     *
+     * @param state The map, its queries and the context.
+     * @return True if a path was found, so the search is not optimized away.
+     */
+    @Benchmark
+    public boolean reusedContext(AllocationState state) {
+        int query = state.nextQuery();
+        return state.search.search(state.context, state.starts[query], state.goals[query], true);
+    }
+
+    /**
+     * Runs the next query in a new context, for comparison.
+     *
+     * @param state The map and its queries.
+     * @return True if a path was found, so the search is not optimized away.
+     */
+    @Benchmark
+    public boolean freshContext(AllocationState state) {
+        int query = state.nextQuery();
+        return state.search.search(new SearchContext(state.grid), state.starts[query], state.goals[query], true);
+    }
+}
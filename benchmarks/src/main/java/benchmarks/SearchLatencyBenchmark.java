@@ -0,0 +1,110 @@
+package benchmarks;
+
+import models.search.OpenListType;
+import models.search.SearchContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a single query takes, one query after another on one thread.
+ * <p>
+ * Next to the time per query, the {@link Counters} report how many queries found a path and how
+ * many cells they expanded in each iteration, so dividing the two gives the expanded cells per
+ * query. Run with {@code -prof gc} to see how much each query allocates. Each query runs with a
+ * binary heap and with a bucket queue as the open list, to compare the two.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchLatencyBenchmark {
+    /**
+     * The search context of a thread, and which query it runs next.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        /**
+         * The kind of open list the context uses.
+         */
+        @Param({"BINARY_HEAP", "BUCKET_QUEUE"})
+        public OpenListType openList;
+
+        /**
+         * The context reused by every query of the thread.
+         */
+        SearchContext context;
+
+        /**
+         * The index of the next query.
+         */
+        int next;
+
+        /**
+         * Creates the context for the map.
+         *
+         * @param state The map and its queries.
+         */
+        @Setup(Level.Trial)
+        public void setUp(SearchState state) {
+            context = new SearchContext(state.grid, openList);
+        }
+    }
+
+    /**
+     * The counts reported next to the time per query.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /**
+         * The number of queries run.
+         */
+        public long queries;
+
+        /**
+         * The number of queries that found a path.
+         */
+        public long pathsFound;
+
+        /**
+         * The number of cells expanded by every query.
+         */
+        public long expandedNodes;
+
+        /**
+         * Clears the counts before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            queries = 0;
+            pathsFound = 0;
+            expandedNodes = 0;
+        }
+    }
+
+    /**
+     * Runs the next query.
+     *
+     * @param state    The map and its queries.
+     * @param thread   The context of this thread.
+     * @param counters The counts to add the query to.
+     * @return True if a path was found, so the search is not optimized away.
+     */
+    @Benchmark
+    public boolean singleQuery(SearchState state, ThreadState thread, Counters counters) {
+        int query = thread.next;
+        thread.next = (query + 1) % SearchState.QUERIES;
+
+        boolean found = thread.context.run(state.mode.getPathfinder(), state.starts[query],
+                state.goals[query], state.diagonals);
+
+        counters.queries++;
+        counters.expandedNodes += thread.context.getExpandedCount();
+        if (found) {
+            counters.pathsFound++;
+        }
+        return found;
+    }
+}
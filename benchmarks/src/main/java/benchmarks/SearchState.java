@@ -0,0 +1,69 @@
+package benchmarks;
+
+import models.Grid;
+import models.search.SearchMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * A map and a fixed set of queries on it, shared by every thread of a search benchmark.
+ */
+@State(Scope.Benchmark)
+public class SearchState {
+    /**
+     * The number of queries generated for each map.
+     */
+    public static final int QUERIES = 32;
+
+    /**
+     * The width and height of the map.
+     */
+    @Param({"64", "256", "1024", "4096"})
+    public int size;
+
+    /**
+     * The kind of map searched.
+     */
+    @Param({"RANDOM_10", "RANDOM_25", "MAZE", "ROOMS"})
+    public MapType map;
+
+    /**
+     * Are diagonal steps allowed?
+     */
+    @Param({"true", "false"})
+    public boolean diagonals;
+
+    /**
+     * The search algorithm run.
+     */
+    @Param({"A_STAR", "JUMP_POINT", "BIDIRECTIONAL", "WEIGHTED_A_STAR", "FOCAL"})
+    public SearchMode mode;
+
+    /**
+     * The map searched.
+     */
+    public Grid grid;
+
+    /**
+     * The start and goal of every query.
+     */
+    public int[] starts, goals;
+
+    /**
+     * Creates the map and picks the queries. Both only depend on the parameters, so every
+     * algorithm is measured on the same queries.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid = map.create(size, 42);
+
+        Random random = new Random(7);
+        starts = new int[QUERIES];
+        goals = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = MapType.randomOpenCell(grid, random);
+            goals[i] = MapType.randomOpenCell(grid, random);
+        }
+    }
+}
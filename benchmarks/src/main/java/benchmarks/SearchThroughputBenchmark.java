@@ -0,0 +1,90 @@
+package benchmarks;
+
+import models.search.SearchContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import services.PathQuery;
+import services.PathService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many queries per second a batch of queries gets through, first on one thread with
+ * one reused context and then spread over every core with a {@link PathService}. The score is in
+ * queries per second, since each invocation runs the whole batch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchThroughputBenchmark {
+    /**
+     * The context used by the sequential batch.
+     */
+    private SearchContext context;
+
+    /**
+     * The service used by the parallel batch, and the batch as queries.
+     */
+    private PathService service;
+    private List<PathQuery> queries;
+
+    /**
+     * Creates the context and the service for the map.
+     *
+     * @param state The map and its queries.
+     */
+    @Setup(Level.Trial)
+    public void setUp(SearchState state) {
+        context = new SearchContext(state.grid);
+
+        service = PathService.withThreadPool(state.grid, Runtime.getRuntime().availableProcessors());
+        service.setSearchMode(state.mode);
+        queries = new ArrayList<>(SearchState.QUERIES);
+        for (int i = 0; i < SearchState.QUERIES; i++) {
+            queries.add(new PathQuery(state.starts[i], state.goals[i]));
+        }
+    }
+
+    /**
+     * Shuts down the service's threads.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    /**
+     * Runs every query of the batch on this thread.
+     *
+     * @param state     The map and its queries.
+     * @param blackhole Consumes the results, so the searches are not optimized away.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SearchState.QUERIES)
+    public void sequentialBatch(SearchState state, Blackhole blackhole) {
+        for (int i = 0; i < SearchState.QUERIES; i++) {
+            blackhole.consume(context.run(state.mode.getPathfinder(), state.starts[i],
+                    state.goals[i], state.diagonals));
+        }
+    }
+
+    /**
+     * Runs every query of the batch on the service and waits for all of them.
+     *
+     * @param state     The map and its queries.
+     * @param blackhole Consumes the results, so the searches are not optimized away.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SearchState.QUERIES)
+    public void parallelBatch(SearchState state, Blackhole blackhole) {
+        for (CompletableFuture<int[]> path : service.findPaths(queries, state.diagonals)) {
+            blackhole.consume(path.join());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package controllers;
 
 import models.Grid;
 import models.Node;
+import models.search.AnytimeSearch;
 import views.GridPanel;
 
 import javax.swing.*;
@@ -10,6 +11,13 @@ import java.util.LinkedList;
 
 public class GridPanelController {
 
+    /**
+     * How long the search may run each tick, in nanoseconds, and how often it ticks, in
+     * milliseconds. The search runs on the event thread, so this keeps the window responsive.
+     */
+    private static final long SEARCH_BUDGET = 4_000_000L;
+    private static final int SEARCH_TICK = 16;
+
     /**
      * The panel that this controller controls.
      */
@@ -30,11 +38,29 @@ public class GridPanelController {
      */
     private LinkedHashSet<Node> path;
 
+    /**
+     * The nodes visited by the last A* search. If no search has run, this is null.
+     */
+    private LinkedHashSet<Node> visitedNodes;
+
     /**
      * The node obstacles in the grid.
      */
     private LinkedList<Node> obstacles;
 
+    /**
+     * The running search, and the timer that runs a slice of it every tick. Both are null when no
+     * search is running.
+     */
+    private AnytimeSearch search;
+    private Timer searchTimer;
+
+    /**
+     * What of the running search is shown: the round its visited nodes are from, how many of the
+     * cells expanded in that round were added to them, and the version of the path.
+     */
+    private int shownRound, shownExpanded, shownPathVersion;
+
     /**
      * Creates a new GridPanelController.
      *
@@ -50,7 +76,9 @@ public class GridPanelController {
     }
 
     /**
-     * Starts the A* search algorithm.
+     * Starts the A* search algorithm. The search runs a few milliseconds at a time on the event
+     * thread, showing the best path so far after each slice, and refines it until it is the
+     * cheapest path.
      */
     public void performAStar() {
         if (start == null && goal == null) {
@@ -68,14 +96,76 @@ public class GridPanelController {
             return;
         }
 
-        path = grid.performAStar(start, goal, true);
+        stopSearch();
+        search = new AnytimeSearch(grid, grid.cellId(start.getX(), start.getY()),
+                grid.cellId(goal.getX(), goal.getY()), true);
+        searchTimer = new Timer(SEARCH_TICK, e -> runSearch());
+        path = null;
+        visitedNodes = new LinkedHashSet<>();
+        shownRound = search.getRound();
+        shownExpanded = 0;
+        shownPathVersion = -1;
+        runSearch();
+        if (search != null) {
+            searchTimer.start();
+        }
+    }
+
+    /**
+     * Runs a slice of the search, shows its best path so far and the cells it expanded, and stops
+     * it once it is done. Only the cells expanded since the last slice are added, and the path is
+     * only built again when it changed.
+     */
+    private void runSearch() {
+        boolean done = search.runFor(SEARCH_BUDGET);
+        int width = grid.getWidth();
+
+        // A new round forgets the cells expanded before it, so the visited nodes start over.
+        if (search.getRound() != shownRound) {
+            visitedNodes = new LinkedHashSet<>();
+            shownRound = search.getRound();
+            shownExpanded = 0;
+        }
+        int expanded = search.getExpandedCount();
+        for (; shownExpanded < expanded; shownExpanded++) {
+            int cell = search.getExpandedCell(shownExpanded);
+            visitedNodes.add(grid.getNode(cell % width, cell / width));
+        }
+
+        if (search.getPathVersion() != shownPathVersion) {
+            shownPathVersion = search.getPathVersion();
+            path = new LinkedHashSet<>();
+            for (int cell : search.getPartialPath()) {
+                path.add(grid.getNode(cell % width, cell / width));
+            }
+        }
+
+        if (done) {
+            if (search.getPath() == null) {
+                path = null;
+            }
+            stopSearch();
+        }
+        panel.repaint();
+    }
+
+    /**
+     * Stops the running search, if there is one, keeping what it has shown so far. The search
+     * can not follow changes to the grid, so it is stopped before the grid changes.
+     */
+    private void stopSearch() {
+        if (searchTimer != null) {
+            searchTimer.stop();
+        }
+        search = null;
+        searchTimer = null;
     }
 
     /**
      * Resets the grid.
      */
     public void resetGrid() {
-        grid.resetGrid();
+        stopSearch();
 
         if (path != null) {
             for (Node node : path) {
@@ -90,6 +180,7 @@ public class GridPanelController {
         }
 
         path = null;
+        visitedNodes = null;
         obstacles = new LinkedList<>();
         start = goal = null;
         panel.repaint();
@@ -148,6 +239,7 @@ public class GridPanelController {
      * @param node The node to be set as an obstacle.
      */
     public void setObstacle(Node node) {
+        stopSearch();
         node.setObstacle(true);
         obstacles.add(node);
     }
@@ -159,6 +251,7 @@ public class GridPanelController {
      * @param node The node to be reset.
      */
     public void resetNode(Node node) {
+        stopSearch();
         if (node.equals(start)) {
             start = null;
         } else if (node.equals(goal)) {
@@ -174,7 +267,7 @@ public class GridPanelController {
      * @return The A* search.
      */
     public LinkedHashSet<Node> getVisitedNodes() {
-        return grid.getClosedNodes();
+        return visitedNodes;
     }
 
     /**
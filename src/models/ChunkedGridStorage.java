@@ -0,0 +1,286 @@
+package models;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Stores a grid as square chunks of {@value #CHUNK_SIZE} by {@value #CHUNK_SIZE} cells, for very
+ * large worlds that are mostly open or mostly blocked.
+ * <p>
+ * Every chunk starts out as a shared all open chunk, and only gets a chunk of its own the first
+ * time one of its cells changes. {@link #compact()} turns chunks that have become all open or all
+ * blocked back into the shared ones. Each row of a chunk fits in one long, so a chunk of obstacle
+ * flags is {@value #CHUNK_SIZE} longs. Costs are kept per chunk too, and only for chunks that have
+ * a cell costing more than 1.
+ * <p>
+ * Searches run across chunks without knowing about them, since they only see cell ids. Looking a
+ * cell up takes a division more than in a {@link DenseGridStorage}.
+ */
+public class ChunkedGridStorage implements GridStorage {
+    /**
+     * The width and height of a chunk, and the number of bits to shift a coordinate by to get the
+     * coordinate of its chunk.
+     */
+    public static final int CHUNK_SIZE = 64;
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * The shared chunks every all open and all blocked chunk points to. They are never written.
+     */
+    private static final long[] OPEN_CHUNK = new long[CHUNK_SIZE];
+    private static final long[] BLOCKED_CHUNK = new long[CHUNK_SIZE];
+
+    static {
+        Arrays.fill(BLOCKED_CHUNK, -1L);
+    }
+
+    private final int width, height;
+
+    /**
+     * The number of chunks horizontally and vertically.
+     */
+    private final int chunksX, chunksY;
+
+    /**
+     * The obstacle flags of every chunk, row by row, with the flag of a cell in bit X of the row's
+     * long.
+     */
+    private final long[][] obstacleChunks;
+
+    /**
+     * The costs of every chunk, with the cost of a cell at {@code y * CHUNK_SIZE + x}, or null for
+     * chunks where every cell costs 1. The whole array is null while every cell costs 1.
+     */
+    private byte[][] costChunks;
+
+    /**
+     * The number of cells that cost more than 1. Cost chunks are only dropped by
+     * {@link #compact()}, so this tells whether the costs have to be looked up.
+     */
+    private int costlyCells;
+
+    /**
+     * Creates a new storage with every cell open. No chunks are allocated until cells change.
+     *
+     * @param width  The number of cells horizontally.
+     * @param height The number of cells vertically.
+     */
+    public ChunkedGridStorage(int width, int height) {
+        this.width = width;
+        this.height = height;
+        chunksX = (width + CHUNK_MASK) >>> CHUNK_SHIFT;
+        chunksY = (height + CHUNK_MASK) >>> CHUNK_SHIFT;
+        obstacleChunks = new long[chunksX * chunksY][];
+        Arrays.fill(obstacleChunks, OPEN_CHUNK);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the index of the chunk holding a cell.
+     *
+     * @param x The X coordinate of the cell.
+     * @param y The Y coordinate of the cell.
+     * @return The index of the chunk.
+     */
+    private int chunkIndex(int x, int y) {
+        return (y >>> CHUNK_SHIFT) * chunksX + (x >>> CHUNK_SHIFT);
+    }
+
+    @Override
+    public boolean isObstacle(int id) {
+        int y = id / width;
+        int x = id - y * width;
+        // Shifting a long only uses the lowest 6 bits of X, which is its place in the row.
+        return (obstacleChunks[chunkIndex(x, y)][y & CHUNK_MASK] & (1L << x)) != 0;
+    }
+
+    @Override
+    public void setObstacle(int id, boolean obstacle) {
+        int y = id / width;
+        int x = id - y * width;
+        int index = chunkIndex(x, y);
+        long[] chunk = obstacleChunks[index];
+        if (chunk == OPEN_CHUNK || chunk == BLOCKED_CHUNK) {
+            // The shared chunks are never written, so the chunk gets its own copy.
+            chunk = chunk.clone();
+            obstacleChunks[index] = chunk;
+        }
+
+        int row = y & CHUNK_MASK;
+        chunk[row] = obstacle ? chunk[row] | 1L << x : chunk[row] & ~(1L << x);
+    }
+
+    @Override
+    public int getCost(int id) {
+        if (costChunks == null) {
+            return 1;
+        }
+
+        int y = id / width;
+        int x = id - y * width;
+        byte[] chunk = costChunks[chunkIndex(x, y)];
+        return chunk == null ? 1 : chunk[(y & CHUNK_MASK) << CHUNK_SHIFT | (x & CHUNK_MASK)] & 0xFF;
+    }
+
+    @Override
+    public void setCost(int id, int cost) {
+        int y = id / width;
+        int x = id - y * width;
+        int index = chunkIndex(x, y);
+        if (costChunks == null || costChunks[index] == null) {
+            if (cost == 1) {
+                return;
+            }
+            if (costChunks == null) {
+                costChunks = new byte[obstacleChunks.length][];
+            }
+            byte[] chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+            Arrays.fill(chunk, (byte) 1);
+            costChunks[index] = chunk;
+        }
+        int cell = (y & CHUNK_MASK) << CHUNK_SHIFT | (x & CHUNK_MASK);
+        int oldCost = costChunks[index][cell] & 0xFF;
+        if (oldCost > 1 != cost > 1) {
+            costlyCells += cost > 1 ? 1 : -1;
+        }
+        costChunks[index][cell] = (byte) cost;
+    }
+
+    @Override
+    public boolean hasCosts() {
+        return costlyCells > 0;
+    }
+
+    @Override
+    public int getStepCost(int from, int to, int baseCost) {
+        if (costlyCells == 0) {
+            return baseCost;
+        }
+        return baseCost / 2 * (getCost(from) + getCost(to));
+    }
+
+    /**
+     * Copies the obstacle flags into the packed layout of a {@link DenseGridStorage}.
+     *
+     * @return A copy of the flags.
+     */
+    @Override
+    public LongBuffer getObstacleWords() {
+        long[] words = new long[Grid.wordCount(width, height)];
+        int id = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, id++) {
+                if ((obstacleChunks[chunkIndex(x, y)][y & CHUNK_MASK] & (1L << x)) != 0) {
+                    words[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+        return LongBuffer.wrap(words).asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies the cell costs into the layout of a {@link DenseGridStorage}.
+     *
+     * @return A copy of the costs, or null if every cell costs 1.
+     */
+    @Override
+    public ByteBuffer getCostBytes() {
+        if (costChunks == null) {
+            return null;
+        }
+
+        byte[] costs = new byte[width * height];
+        for (int id = 0; id < costs.length; id++) {
+            costs[id] = (byte) getCost(id);
+        }
+        return ByteBuffer.wrap(costs).asReadOnlyBuffer();
+    }
+
+    /**
+     * Turns every chunk whose cells are all open or all blocked back into a shared chunk, and
+     * drops the costs of chunks where every cell costs 1. Cells of chunks on the right and bottom
+     * edge that lie outside the grid do not count.
+     *
+     * @return The number of chunks that were freed.
+     */
+    public int compact() {
+        int freed = 0;
+        for (int cy = 0; cy < chunksY; cy++) {
+            int rows = Math.min(CHUNK_SIZE, height - (cy << CHUNK_SHIFT));
+            for (int cx = 0; cx < chunksX; cx++) {
+                int columns = Math.min(CHUNK_SIZE, width - (cx << CHUNK_SHIFT));
+                long mask = columns == CHUNK_SIZE ? -1L : (1L << columns) - 1;
+                int index = cy * chunksX + cx;
+
+                long[] chunk = obstacleChunks[index];
+                if (chunk != OPEN_CHUNK && chunk != BLOCKED_CHUNK) {
+                    boolean open = true;
+                    boolean blocked = true;
+                    for (int row = 0; row < rows; row++) {
+                        open &= (chunk[row] & mask) == 0;
+                        blocked &= (chunk[row] & mask) == mask;
+                    }
+                    if (open || blocked) {
+                        obstacleChunks[index] = open ? OPEN_CHUNK : BLOCKED_CHUNK;
+                        freed++;
+                    }
+                }
+
+                if (costChunks != null && costChunks[index] != null && isUniformCost(costChunks[index])) {
+                    costChunks[index] = null;
+                    freed++;
+                }
+            }
+        }
+
+        if (costChunks != null && Arrays.stream(costChunks).allMatch(chunk -> chunk == null)) {
+            costChunks = null;
+        }
+        return freed;
+    }
+
+    /**
+     * Does every cell of a cost chunk cost 1?
+     *
+     * @param chunk The costs of the chunk.
+     * @return True if every cost is 1, false otherwise.
+     */
+    private static boolean isUniformCost(byte[] chunk) {
+        for (byte cost : chunk) {
+            if (cost != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of chunks holding their own obstacle flags or costs, rather than sharing
+     * them, as a measure of the memory used.
+     *
+     * @return The number of allocated chunks.
+     */
+    public int getAllocatedChunks() {
+        int allocated = 0;
+        for (int i = 0; i < obstacleChunks.length; i++) {
+            if (obstacleChunks[i] != OPEN_CHUNK && obstacleChunks[i] != BLOCKED_CHUNK) {
+                allocated++;
+            }
+            if (costChunks != null && costChunks[i] != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+}
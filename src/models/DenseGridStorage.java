@@ -0,0 +1,161 @@
+package models;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Stores a bit for the obstacle flag of every cell, and a byte for the cost of every cell once a
+ * cell costs more than 1. This is the storage of a new {@link Grid}, and of grids mapped with
+ * {@link models.io.GridFile}.
+ */
+public class DenseGridStorage implements GridStorage {
+    private final int width, height;
+
+    /**
+     * The obstacle flag of every cell, packed 64 cells to a word. This is an array on the heap
+     * for a new grid, or a mapped file for a grid loaded with {@link models.io.GridFile}.
+     */
+    private final LongBuffer obstacles;
+
+    /**
+     * The cost of walking on every cell, from 1 to {@link Grid#MAX_COST} stored as unsigned bytes,
+     * or null while every cell costs 1. Keeping the layer away until a cost is set lets uniform
+     * cost grids skip the lookup.
+     */
+    private ByteBuffer costs;
+
+    /**
+     * The number of cells that cost more than 1. The cost layer is kept once it is added, even
+     * when every cell costs 1 again, since it may be a mapped file, so this tells whether the
+     * costs have to be looked up.
+     */
+    private int costlyCells;
+
+    /**
+     * Creates a new storage with every cell open.
+     *
+     * @param width  The number of cells horizontally.
+     * @param height The number of cells vertically.
+     */
+    public DenseGridStorage(int width, int height) {
+        this(width, height, LongBuffer.allocate(Grid.wordCount(width, height)), null);
+    }
+
+    /**
+     * Creates a storage on top of existing obstacle flags and cell costs, without copying them.
+     * Changes are written through to the buffers.
+     *
+     * @param width     The number of cells horizontally.
+     * @param height    The number of cells vertically.
+     * @param obstacles The obstacle flag of every cell, packed 64 cells to a word with cell id
+     *                  {@code i} in bit {@code i % 64} of word {@code i / 64}.
+     * @param costs     The cost of every cell as an unsigned byte at its id, or null if every
+     *                  cell costs 1.
+     * @throws IllegalArgumentException If a buffer is too small for the grid.
+     */
+    public DenseGridStorage(int width, int height, LongBuffer obstacles, ByteBuffer costs) {
+        if (costs != null && costs.remaining() < width * height) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " grid needs "
+                    + width * height + " cell costs, got " + costs.remaining() + ".");
+        }
+        if (obstacles.remaining() < Grid.wordCount(width, height)) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " grid needs "
+                    + Grid.wordCount(width, height) + " words of obstacle flags, got " + obstacles.remaining() + ".");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.obstacles = obstacles.slice();
+        this.costs = costs == null ? null : costs.slice();
+        if (costs != null) {
+            for (int id = 0; id < width * height; id++) {
+                if ((this.costs.get(id) & 0xFF) > 1) {
+                    costlyCells++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean isObstacle(int id) {
+        return (obstacles.get(id >>> 6) & (1L << id)) != 0;
+    }
+
+    @Override
+    public void setObstacle(int id, boolean obstacle) {
+        long word = obstacles.get(id >>> 6);
+        obstacles.put(id >>> 6, obstacle ? word | 1L << id : word & ~(1L << id));
+    }
+
+    @Override
+    public int getCost(int id) {
+        return costs == null ? 1 : costs.get(id) & 0xFF;
+    }
+
+    /**
+     * Sets the cost of walking on a cell. The first cost other than 1 adds a cost layer of one
+     * byte per cell.
+     *
+     * @param id   The id of the cell.
+     * @param cost The cost of the cell, from 1 to {@link Grid#MAX_COST}.
+     */
+    @Override
+    public void setCost(int id, int cost) {
+        if (costs == null) {
+            if (cost == 1) {
+                return;
+            }
+            byte[] layer = new byte[width * height];
+            Arrays.fill(layer, (byte) 1);
+            costs = ByteBuffer.wrap(layer);
+        }
+        int oldCost = costs.get(id) & 0xFF;
+        if (oldCost > 1 != cost > 1) {
+            costlyCells += cost > 1 ? 1 : -1;
+        }
+        costs.put(id, (byte) cost);
+    }
+
+    @Override
+    public boolean hasCosts() {
+        return costlyCells > 0;
+    }
+
+    @Override
+    public int getStepCost(int from, int to, int baseCost) {
+        if (costlyCells == 0) {
+            return baseCost;
+        }
+        return baseCost / 2 * ((costs.get(from) & 0xFF) + (costs.get(to) & 0xFF));
+    }
+
+    @Override
+    public LongBuffer getObstacleWords() {
+        return obstacles.asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the buffer the obstacle flags are kept in, so the grid can read them directly.
+     *
+     * @return The obstacle flags, shared with this storage.
+     */
+    LongBuffer getObstacleBuffer() {
+        return obstacles;
+    }
+
+    @Override
+    public ByteBuffer getCostBytes() {
+        return costs == null ? null : costs.asReadOnlyBuffer();
+    }
+}
@@ -1,21 +1,79 @@
 package models;
 
+import models.search.ComponentIndex;
+import models.search.DistanceField;
+import models.search.OpenListType;
+import models.search.PathProcessor;
+import models.search.Pathfinder;
+import models.search.PathProcessors;
+import models.search.SearchContext;
+import models.search.SearchListener;
+import models.search.SearchMode;
+import models.search.SearchStats;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The representation of a grid.
+ * <p>
+ * Every cell is addressed by an id of {@code y * width + x}. Obstacles and costs are kept in a
+ * {@link GridStorage}, a bitset by default or lazily allocated chunks for very large worlds, so the
+ * grid does not hold an object per cell. The nodes returned by {@link #getNode(int, int)} are
+ * lightweight views onto this data.
+ * <p>
+ * The values of a search are kept in a {@link SearchContext} rather than in the grid, so a search
+ * only reads the grid. Any number of threads can search the same grid at once, as long as it is
+ * not changed while they do.
  */
 public class Grid {
-    private int width, height;
+    private final int width, height;
+
+    /**
+     * The obstacle flags and costs of the cells.
+     */
+    private final GridStorage storage;
+
+    /**
+     * The obstacle flags of a {@link DenseGridStorage}, read directly so the check searches make
+     * for every neighbor does not go through the storage, or null for other storages.
+     */
+    private final LongBuffer denseObstacles;
+
+    /**
+     * The highest cost a cell can have.
+     */
+    public static final int MAX_COST = 255;
+
+    /**
+     * The context of the last search each thread ran through
+     * {@link #performSearch(Node, Node, boolean, SearchMode)}. A context is only created once a
+     * thread runs its first search.
+     */
+    private final ThreadLocal<SearchContext> contexts;
+
     /**
-     * The grid represented by a 2D array of nodes.
+     * The listeners told about every change to a cell.
      */
-    private Node[][] grid;
+    private final List<GridListener> listeners;
 
     /**
-     * The visited nodes from the A* search.
+     * Told about every search run through {@link #performSearch(Node, Node, boolean, SearchMode)},
+     * or null if nobody is listening.
      */
-    private LinkedHashSet<Node> closedNodes;
+    private volatile SearchListener searchListener;
+
+    /**
+     * Turns down searches between cells that can not reach each other, or null to always search.
+     */
+    private volatile ComponentIndex componentIndex;
+
+    /**
+     * The kind of open list of new search contexts.
+     */
+    private volatile OpenListType openListType = OpenListType.BINARY_HEAP;
 
     /**
      * Creates a new grid.
@@ -24,31 +82,59 @@ public class Grid {
      * @param height The maximum number of nodes that can be placed vertically.
      */
     public Grid(int width, int height) {
-        this.width = width;
-        this.height = height;
-        grid = new Node[width][height];
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                grid[x][y] = new Node(x, y);
-
-                // Adds neighbors for node right to the current node.
-                if (x != 0) {
-                    grid[x][y].addNeighbor(grid[x - 1][y]);
-                    grid[x - 1][y].addNeighbor(grid[x][y]);
-                }
+        this(new DenseGridStorage(width, height));
+    }
 
-                // Adds neighbors for node above this node.
-                if (y != 0) {
-                    grid[x][y].addNeighbor(grid[x][y - 1]);
-                    grid[x][y - 1].addNeighbor(grid[x][y]);
-                }
-            }
-        }
+    /**
+     * Creates a new grid on top of existing obstacle flags, without copying them. Changes to the
+     * grid are written through to the buffer.
+     *
+     * @param width     The maximum number of nodes that can be placed horizontally.
+     * @param height    The maximum number of nodes that can be placed vertically.
+     * @param obstacles The obstacle flag of every cell, packed 64 cells to a word with cell id
+     *                  {@code i} in bit {@code i % 64} of word {@code i / 64}.
+     * @throws IllegalArgumentException If the buffer does not hold a word for every 64 cells.
+     */
+    public Grid(int width, int height, LongBuffer obstacles) {
+        this(width, height, obstacles, null);
+    }
+
+    /**
+     * Creates a new grid on top of existing obstacle flags and cell costs, without copying them.
+     * Changes to the grid are written through to the buffers.
+     *
+     * @param width     The maximum number of nodes that can be placed horizontally.
+     * @param height    The maximum number of nodes that can be placed vertically.
+     * @param obstacles The obstacle flag of every cell, packed 64 cells to a word with cell id
+     *                  {@code i} in bit {@code i % 64} of word {@code i / 64}.
+     * @param costs     The cost of every cell as an unsigned byte at its id, or null if every
+     *                  cell costs 1.
+     * @throws IllegalArgumentException If a buffer is too small for the grid.
+     */
+    public Grid(int width, int height, LongBuffer obstacles, ByteBuffer costs) {
+        this(new DenseGridStorage(width, height, obstacles, costs));
+    }
+
+    /**
+     * Creates a new grid on top of a storage, such as a {@link ChunkedGridStorage} for a very
+     * large world.
+     *
+     * @param storage The obstacle flags and costs of the cells.
+     */
+    public Grid(GridStorage storage) {
+        this.width = storage.getWidth();
+        this.height = storage.getHeight();
+        this.storage = storage;
+        this.denseObstacles = storage instanceof DenseGridStorage
+                ? ((DenseGridStorage) storage).getObstacleBuffer() : null;
+        contexts = ThreadLocal.withInitial(() -> new SearchContext(this, openListType));
+        listeners = new CopyOnWriteArrayList<>();
     }
 
     /**
-     * Performs A* search algorithm for the shortest path from a start node to and end node.
+     * Performs A* search algorithm for the shortest path from a start node to and end node. The
+     * search runs in a context owned by the calling thread, see {@link services.PathService} to
+     * run many searches in parallel.
      *
      * @param start          The starting point for the A* search.
      * @param goal           The node that we want to reach.
@@ -56,163 +142,209 @@ public class Grid {
      * @return If a path is found, the path from the start node to the goal node, null otherwise.
      */
     public LinkedHashSet<Node> performAStar(Node start, Node goal, boolean checkDiagonals) {
-        // Use PriorityQueue to get node with lowest F score in O(log n) time.
-        PriorityQueue<Node> openNodes = new PriorityQueue<>();
-        // Use LinkedHashSet to check if node has already been checked in O(1) time and
-        // to maintain ordering of inserted items.
-        closedNodes = new LinkedHashSet<>();
-        // Start node starts at 0 since the distance to itself is 0.
-        start.setGScore(0);
-        // Initial H Score is just the distance from the start to goal.
-        start.setHScore(findEuclidDistance(start, goal));
-        // F Score starts as 0 + distance from start to end.
-        start.updateFScore();
-        // Open nodes start with the initial start node.
-        openNodes.add(start);
-
-        while (!openNodes.isEmpty()) {
-            // Get the node with the lowest F score.
-            Node current = openNodes.poll();
-
-            // If we reached the goal, build the path and return it.
-            if (current == goal) {
-                return buildPath(goal);
-            }
-
-            closedNodes.add(current);
-
-            for (Node neighbor : current.getNeighbors()) {
-                if (closedNodes.contains(neighbor) || neighbor.isObstacle()) {
-                    continue;
-                }
-
-                // Updates the G Score, H Score, and F score for the neighbor node.
-                // If the neighbor node is an acceptable one to walk, we add it to openNodes.
-                if (updateNodeValues(current, neighbor, goal)) {
-                    openNodes.add(neighbor);
-                }
-            }
+        return performSearch(start, goal, checkDiagonals, SearchMode.A_STAR);
+    }
 
-            if (checkDiagonals) {
-                openNodes = checkNodeDiagonals(current, goal, openNodes);
-            }
+    /**
+     * Searches for the shortest path from a start node to an end node with the given algorithm.
+     *
+     * @param start          The starting point for the search.
+     * @param goal           The node that we want to reach.
+     * @param checkDiagonals True if we check nodes diagonal to the current node, false otherwise.
+     * @param mode           The search algorithm to use.
+     * @return If a path is found, the path from the start node to the goal node, null otherwise.
+     */
+    public LinkedHashSet<Node> performSearch(Node start, Node goal, boolean checkDiagonals, SearchMode mode) {
+        SearchContext context = searchContext();
+        context.setSearchListener(searchListener);
+        context.setComponentIndex(componentIndex);
+        if (!context.run(mode.getPathfinder(), cellId(start.getX(), start.getY()),
+                cellId(goal.getX(), goal.getY()), checkDiagonals)) {
+            // If we can't find a path to the end, return nothing.
+            return null;
         }
 
-        // If we can't find a path to the end, return nothing.
-        return null;
+        return buildPath(context);
     }
 
     /**
-     * In the A* search, check the nodes diagonal to a given node. This improves our path as it
-     * reduces the number of nodes needed to get to the goal.
+     * Searches for the shortest path between two cells, and returns it as cell ids rather than
+     * nodes. The search runs in a context owned by the calling thread.
      *
-     * @param node      The node we are checking.
-     * @param goal      The goal node.
-     * @param openNodes The open nodes that we are going to check during A*.
-     * @return The PriorityQueue of open nodes that is used during A*.
+     * @param start          The id of the cell to start from.
+     * @param goal           The id of the cell to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param mode           The search algorithm to use.
+     * @param processors     The stages to run the path through, in order, such as
+     *                       {@link PathProcessors#REMOVE_COLLINEAR}.
+     * @return The cell ids on the path from start to goal, or its waypoints if it was processed,
+     *         or null if there is no path.
      */
-    private PriorityQueue<Node> checkNodeDiagonals(Node node, Node goal, PriorityQueue<Node> openNodes) {
-        int x = node.getX();
-        int y = node.getY();
-        List<Node> newOpenNodes = new LinkedList<>();
-
-        // Check the diagonal nodes to the bottom left and top left.
-        if (x - 1 >= 0) {
-            if (y - 1 >= 0) {
-                boolean shouldCheckNode = !closedNodes.contains(grid[x - 1][y - 1]) && !grid[x - 1][y - 1].isObstacle();
-                if (shouldCheckNode && updateNodeValues(node, grid[x - 1][y - 1], goal))
-                    newOpenNodes.add(grid[x - 1][y - 1]);
-            }
-
-            if (y + 1 <= height) {
-                boolean shouldCheckNode = !closedNodes.contains(grid[x - 1][y + 1]) && !grid[x - 1][y + 1].isObstacle();
-                if (shouldCheckNode && updateNodeValues(node, grid[x - 1][y + 1], goal))
-                    newOpenNodes.add(grid[x - 1][y + 1]);
-            }
-        }
-
-        // Check the diagonal nodes to the bottom right and top right.
-        if (x + 1 <= width) {
-            if (y - 1 >= 0) {
-                boolean shouldCheckNode = !closedNodes.contains(grid[x + 1][y - 1]) && !grid[x + 1][y - 1].isObstacle();
-                if (shouldCheckNode && updateNodeValues(node, grid[x + 1][y - 1], goal))
-                    newOpenNodes.add(grid[x + 1][y - 1]);
-            }
+    public int[] findPath(int start, int goal, boolean checkDiagonals, SearchMode mode,
+                          PathProcessor... processors) {
+        return findPath(start, goal, checkDiagonals, mode.getPathfinder(), processors);
+    }
 
-            if (y + 1 <= height) {
-                boolean shouldCheckNode = !closedNodes.contains(grid[x + 1][y + 1]) && !grid[x + 1][y + 1].isObstacle();
-                if (shouldCheckNode && updateNodeValues(node, grid[x + 1][y + 1], goal))
-                    newOpenNodes.add(grid[x + 1][y + 1]);
-            }
+    /**
+     * Searches for a path between two cells with a pathfinder that is not one of the
+     * {@link SearchMode}s, such as a {@link models.search.WeightedAStarSearch} with its own bound.
+     * The search runs in a context owned by the calling thread.
+     *
+     * @param start          The id of the cell to start from.
+     * @param goal           The id of the cell to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param pathfinder     The search algorithm to use, which must be safe to share between threads
+     *                       if other threads use it too.
+     * @param processors     The stages to run the path through, in order.
+     * @return The cell ids on the path from start to goal, or its waypoints if it was processed,
+     *         or null if there is no path.
+     */
+    public int[] findPath(int start, int goal, boolean checkDiagonals, Pathfinder pathfinder,
+                          PathProcessor... processors) {
+        SearchContext context = searchContext();
+        context.setSearchListener(searchListener);
+        context.setComponentIndex(componentIndex);
+        if (!context.run(pathfinder, start, goal, checkDiagonals)) {
+            return null;
         }
 
-        for (Node newOpenNode : newOpenNodes) {
-            if (!openNodes.contains(newOpenNode)) {
-                openNodes.add(newOpenNode);
-            }
+        int[] path = context.copyPath();
+        for (PathProcessor processor : processors) {
+            path = processor.process(this, path);
         }
-        return openNodes;
+        return path;
     }
 
     /**
-     * Updates a given node's values during A*.
+     * Gets the calling thread's context for a new search, replacing it if its open list is not of
+     * the kind set with {@link #setOpenListType(OpenListType)}.
      *
-     * @param current  The current node we are on.
-     * @param neighbor The neighbor to the current node.
-     * @param goal     The goal node.
-     * @return True if it should be added to the open list, false otherwise.
+     * @return The context.
      */
-    private boolean updateNodeValues(Node current, Node neighbor, Node goal) {
-        int newGScore = current.getGScore() + findEuclidDistance(current, neighbor);
-        if (newGScore < neighbor.getGScore()) {
-            neighbor.setCameFrom(current);
-            neighbor.setGScore(newGScore);
-            neighbor.setHScore(findEuclidDistance(neighbor, goal));
-            neighbor.updateFScore();
-            return true;
+    private SearchContext searchContext() {
+        SearchContext context = contexts.get();
+        if (context.getOpenListType() != openListType) {
+            context = new SearchContext(this, openListType);
+            contexts.set(context);
         }
-        return false;
+        return context;
     }
 
     /**
      * Builds the path from the start to the end goal if the end goal is reached.
      *
-     * @param goal The end goal.
-     * @return The LinkedHashSet containing the path from the start to the end goal.
+     * @param context The context of the search that reached the goal.
+     * @return The LinkedHashSet containing the path from the end goal to the start.
      */
-    private LinkedHashSet<Node> buildPath(Node goal) {
+    private LinkedHashSet<Node> buildPath(SearchContext context) {
         LinkedHashSet<Node> path = new LinkedHashSet<>();
-        Node current = goal;
-        while (current != null) {
-            path.add(current);
-            current = current.getCameFrom();
+        for (int i = context.getPathLength() - 1; i >= 0; i--) {
+            path.add(nodeOf(context.getPathCell(i)));
         }
         return path;
     }
 
     /**
-     * Finds the Euclidean distance between two nodes.
+     * Works out the distance from every cell to the closest of a set of goals with one search,
+     * rather than one search from every cell. See {@link DistanceField}.
      *
-     * @param a The first node.
-     * @param b The second node.
-     * @return The Euclidean distance between the two nodes.
+     * @param goals          The ids of the goal cells.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The distance of every cell by id, or {@link DistanceField#UNREACHABLE} for cells
+     *         that can not reach a goal.
      */
-    private int findEuclidDistance(Node a, Node b) {
-        float xDiff = a.getX() - b.getX();
-        float yDiff = a.getY() - b.getY();
-        return (int) Math.round(Math.sqrt(Math.pow(xDiff, 2) + Math.pow(yDiff, 2)) * 10);
+    public int[] getDistanceField(int[] goals, boolean checkDiagonals) {
+        return DistanceField.compute(this, goals, checkDiagonals);
     }
 
     /**
-     * Resets the node's values in the grid.
+     * Works out a separate distance field for each goal, in parallel on the common fork join pool.
+     * The grid must not change until they are done. The fields take 4 bytes per cell per goal.
+     *
+     * @param goals          The ids of the goal cells, one for each field.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The distance field of every goal, in the order of the goals.
      */
-    public void resetGrid() {
-        if (closedNodes == null || closedNodes.isEmpty())
-            return;
+    public int[][] getDistanceFields(int[] goals, boolean checkDiagonals) {
+        return DistanceField.computeAll(this, goals, checkDiagonals);
+    }
 
-        for (Node node : closedNodes) {
-            node.resetNode();
-        }
+    /**
+     * Works out the direction of the cheapest step towards the closest of a set of goals from
+     * every cell, so any number of agents can head there without searching.
+     *
+     * @param goals          The ids of the goal cells.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The direction of every cell by id, see {@link DistanceField#toFlowField}.
+     */
+    public byte[] getFlowField(int[] goals, boolean checkDiagonals) {
+        return DistanceField.toFlowField(this, getDistanceField(goals, checkDiagonals), checkDiagonals);
+    }
+
+    /**
+     * Describes the calling thread's last search, such as how many nodes it expanded and how
+     * long it took.
+     *
+     * @return The stats of the last search.
+     */
+    public SearchStats getLastSearchStats() {
+        return contexts.get().getStats();
+    }
+
+    /**
+     * Sets the listener told about every search run on this grid through
+     * {@link #performSearch(Node, Node, boolean, SearchMode)}, from any thread.
+     *
+     * @param listener The listener, or null to stop telling anyone.
+     */
+    public void setSearchListener(SearchListener listener) {
+        searchListener = listener;
+    }
+
+    /**
+     * Sets the kind of open list searches on this grid use, such as
+     * {@link OpenListType#BUCKET_QUEUE} for integer costs. Each thread switches over at its next
+     * search.
+     *
+     * @param openListType The kind of open list.
+     */
+    public void setOpenListType(OpenListType openListType) {
+        this.openListType = openListType;
+    }
+
+    /**
+     * Gets the kind of open list searches on this grid use.
+     *
+     * @return The kind of open list.
+     */
+    public OpenListType getOpenListType() {
+        return openListType;
+    }
+
+    /**
+     * Sets the index used to turn down searches between cells that can not reach each other,
+     * without searching. The index keeps itself up to date as cells change.
+     *
+     * @param componentIndex An index built on this grid, or null to always search.
+     */
+    public void setComponentIndex(ComponentIndex componentIndex) {
+        this.componentIndex = componentIndex;
+    }
+
+    /**
+     * Gets the index used to turn down searches between cells that can not reach each other.
+     *
+     * @return The index, or null if there is none.
+     */
+    public ComponentIndex getComponentIndex() {
+        return componentIndex;
+    }
+
+    /**
+     * Resets the node's values from the calling thread's last search.
+     */
+    public void resetGrid() {
+        contexts.get().reset();
     }
 
     /**
@@ -223,15 +355,257 @@ public class Grid {
      * @return The node with coordinates X and Y.
      */
     public Node getNode(int x, int y) {
-        return grid[x][y];
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ") is outside the grid.");
+        }
+        return new Node(this, x, y);
+    }
+
+    /**
+     * Gets the node view for a cell id.
+     *
+     * @param id The id of the cell.
+     * @return The node for the cell.
+     */
+    private Node nodeOf(int id) {
+        return new Node(this, id % width, id / width);
     }
 
     /**
-     * Gets the visited nodes during the A* search.
+     * Gets the visited nodes during the calling thread's last A* search.
      *
      * @return The list of visited nodes during the A* search.
      */
     public LinkedHashSet<Node> getClosedNodes() {
+        SearchContext context = contexts.get();
+        LinkedHashSet<Node> closedNodes = new LinkedHashSet<>();
+        for (int id = 0; id < width * height; id++) {
+            if (context.isClosed(id)) {
+                closedNodes.add(nodeOf(id));
+            }
+        }
         return closedNodes;
     }
+
+    /**
+     * Gets the number of nodes that can be placed horizontally.
+     *
+     * @return The width of the grid.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the number of nodes that can be placed vertically.
+     *
+     * @return The height of the grid.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the id of the cell at the given coordinates.
+     *
+     * @param x The X coordinate of the cell.
+     * @param y The Y coordinate of the cell.
+     * @return The id of the cell.
+     */
+    public int cellId(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Checks whether a straight line between the centers of two cells only crosses open cells. The
+     * line is walked cell by cell like a Bresenham line, and where it passes exactly through a
+     * corner, both cells next to the corner are checked, so a clear line never touches an
+     * obstacle.
+     *
+     * @param from The id of the cell the line starts at.
+     * @param to   The id of the cell the line ends at.
+     * @return True if every cell the line touches is open, false otherwise.
+     */
+    public boolean hasLineOfSight(int from, int to) {
+        if (isObstacle(from)) {
+            return false;
+        }
+
+        int x = from % width;
+        int y = from / width;
+        int targetX = to % width;
+        int targetY = to / width;
+        int dx = Math.abs(targetX - x);
+        int dy = Math.abs(targetY - y);
+        int stepX = targetX > x ? 1 : -1;
+        int stepY = targetY > y ? 1 : -1;
+
+        // The error tracks which cell border the line crosses next, scaled to stay in integers.
+        int error = dx - dy;
+        for (int remaining = dx + dy; remaining > 0; remaining--) {
+            if (error > 0) {
+                x += stepX;
+                error -= 2 * dy;
+            } else if (error < 0) {
+                y += stepY;
+                error += 2 * dx;
+            } else {
+                // The line passes through a corner, so it touches both cells beside it.
+                if (isObstacle(cellId(x + stepX, y)) || isObstacle(cellId(x, y + stepY))) {
+                    return false;
+                }
+                x += stepX;
+                y += stepY;
+                error += 2 * (dx - dy);
+                remaining--;
+            }
+
+            if (isObstacle(cellId(x, y))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Is the given cell an obstacle?
+     *
+     * @param id The id of the cell.
+     * @return True if the cell is an obstacle, false otherwise.
+     */
+    public boolean isObstacle(int id) {
+        if (denseObstacles != null) {
+            return (denseObstacles.get(id >>> 6) & (1L << id)) != 0;
+        }
+        return storage.isObstacle(id);
+    }
+
+    /**
+     * Gets the cost of walking on a cell.
+     *
+     * @param id The id of the cell.
+     * @return The cost of the cell, from 1 to {@link #MAX_COST}.
+     */
+    public int getCost(int id) {
+        return storage.getCost(id);
+    }
+
+    /**
+     * Sets the cost of walking on a cell. The first cost other than 1 adds a cost layer to the
+     * storage.
+     *
+     * @param id   The id of the cell.
+     * @param cost The cost of the cell, from 1 to {@link #MAX_COST}.
+     * @throws IllegalArgumentException If the cost is out of range.
+     */
+    public void setCost(int id, int cost) {
+        if (cost < 1 || cost > MAX_COST) {
+            throw new IllegalArgumentException("A cell cost must be between 1 and " + MAX_COST + ", got " + cost + ".");
+        }
+        if (getCost(id) == cost) {
+            return;
+        }
+
+        storage.setCost(id, cost);
+        fireCellChanged(id);
+    }
+
+    /**
+     * Does any cell of the grid cost more than 1?
+     *
+     * @return True if a cell costs more than 1, false if every cell costs 1.
+     */
+    public boolean hasCosts() {
+        return storage.hasCosts();
+    }
+
+    /**
+     * Gets a read only view of the cell costs, one unsigned byte per cell at its id. Storages
+     * that keep the costs another way return a copy.
+     *
+     * @return The cell costs, or null if every cell costs 1.
+     */
+    public ByteBuffer getCostBytes() {
+        return storage.getCostBytes();
+    }
+
+    /**
+     * Gets the cost of a step between two neighboring cells. A step costs its base cost times the
+     * average cost of the two cells, so it costs the same both ways, and never less than the base
+     * cost. Heuristics measured in base costs stay admissible.
+     *
+     * @param from     The id of the cell the step starts at.
+     * @param to       The id of the cell the step ends at.
+     * @param baseCost The cost of the step on cells costing 1, which must be even.
+     * @return The cost of the step.
+     */
+    public int getStepCost(int from, int to, int baseCost) {
+        return storage.getStepCost(from, to, baseCost);
+    }
+
+    /**
+     * Gets a read only view of the obstacle flags, packed 64 cells to a word with cell id
+     * {@code i} in bit {@code i % 64} of word {@code i / 64}. Storages that keep the flags
+     * another way return a copy.
+     *
+     * @return The obstacle flags.
+     */
+    public LongBuffer getObstacleWords() {
+        return storage.getObstacleWords();
+    }
+
+    /**
+     * Gets the number of words needed to hold the obstacle flags of a grid.
+     *
+     * @param width  The width of the grid.
+     * @param height The height of the grid.
+     * @return The number of 64 bit words.
+     */
+    public static int wordCount(int width, int height) {
+        return (int) (((long) width * height + 63) >>> 6);
+    }
+
+    /**
+     * Sets the given cell as an obstacle or not.
+     *
+     * @param id       The id of the cell.
+     * @param obstacle True if the cell will become an obstacle, false otherwise.
+     */
+    public void setObstacle(int id, boolean obstacle) {
+        if (isObstacle(id) == obstacle) {
+            return;
+        }
+
+        storage.setObstacle(id, obstacle);
+        fireCellChanged(id);
+    }
+
+    /**
+     * Adds a listener that is told about every change to a cell.
+     *
+     * @param listener The listener to add.
+     */
+    public void addGridListener(GridListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addGridListener(GridListener)}.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeGridListener(GridListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Tells every listener that a cell has changed.
+     *
+     * @param id The id of the cell that changed.
+     */
+    private void fireCellChanged(int id) {
+        for (GridListener listener : listeners) {
+            listener.cellChanged(this, id);
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package models;
+
+/**
+ * Listens for changes to the cells of a grid, so that data derived from the grid can be updated
+ * without rebuilding it from scratch.
+ */
+public interface GridListener {
+    /**
+     * Called after a cell of the grid has changed.
+     *
+     * @param grid The grid that changed.
+     * @param id   The id of the cell that changed.
+     */
+    void cellChanged(Grid grid, int id);
+}
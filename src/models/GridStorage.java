@@ -0,0 +1,94 @@
+package models;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Holds the obstacle flags and costs of the cells of a {@link Grid}. The grid checks arguments
+ * and tells its listeners about changes, so a storage only has to keep the values.
+ * <p>
+ * {@link DenseGridStorage} keeps a bit for every cell and suits most maps.
+ * {@link ChunkedGridStorage} only allocates the parts of a map that are not all open or all
+ * blocked, for very large and sparse worlds.
+ */
+public interface GridStorage {
+    /**
+     * Gets the number of cells the storage holds horizontally.
+     *
+     * @return The width of the grid.
+     */
+    int getWidth();
+
+    /**
+     * Gets the number of cells the storage holds vertically.
+     *
+     * @return The height of the grid.
+     */
+    int getHeight();
+
+    /**
+     * Is the given cell an obstacle?
+     *
+     * @param id The id of the cell.
+     * @return True if the cell is an obstacle, false otherwise.
+     */
+    boolean isObstacle(int id);
+
+    /**
+     * Sets whether a cell is an obstacle.
+     *
+     * @param id       The id of the cell.
+     * @param obstacle True if the cell is an obstacle, false otherwise.
+     */
+    void setObstacle(int id, boolean obstacle);
+
+    /**
+     * Gets the cost of walking on a cell.
+     *
+     * @param id The id of the cell.
+     * @return The cost of the cell, from 1 to {@link Grid#MAX_COST}.
+     */
+    int getCost(int id);
+
+    /**
+     * Sets the cost of walking on a cell.
+     *
+     * @param id   The id of the cell.
+     * @param cost The cost of the cell, from 1 to {@link Grid#MAX_COST}.
+     */
+    void setCost(int id, int cost);
+
+    /**
+     * Does any cell cost more than 1?
+     *
+     * @return True if the storage has cell costs, false if every cell costs 1.
+     */
+    boolean hasCosts();
+
+    /**
+     * Gets the cost of a step between two neighboring cells, see
+     * {@link Grid#getStepCost(int, int, int)}.
+     *
+     * @param from     The id of the cell the step starts at.
+     * @param to       The id of the cell the step ends at.
+     * @param baseCost The cost of the step on cells costing 1, which must be even.
+     * @return The cost of the step.
+     */
+    int getStepCost(int from, int to, int baseCost);
+
+    /**
+     * Gets the obstacle flags, packed 64 cells to a word with cell id {@code i} in bit
+     * {@code i % 64} of word {@code i / 64}.
+     *
+     * @return A read only view of the flags, or a copy if they are not stored this way.
+     */
+    LongBuffer getObstacleWords();
+
+    /**
+     * Gets the cell costs, one unsigned byte per cell at its id.
+     *
+     * @return A read only view of the costs, or a copy if they are not stored this way, or null
+     *         if every cell costs 1.
+     */
+    ByteBuffer getCostBytes();
+}
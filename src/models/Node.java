@@ -1,94 +1,57 @@
 package models;
 
 import java.util.LinkedList;
-import java.util.Objects;
 
 /**
  * The representation of a node in a grid.
+ * <p>
+ * A node does not hold any data of its own, it is a view onto a single cell of the {@link Grid}
+ * that created it. Two nodes are equal when they view the same cell of the same grid. The values
+ * of a search are not kept on the node, see {@link models.search.SearchContext}.
  */
-public class Node implements Comparable {
+public class Node {
     /**
-     * The x and y coordinates of this node in a grid.
-     */
-    private int x, y;
-
-    /**
-     * Values used for A* path finding.
-     * <p>
-     * G Score indicates the euclidean distance from this node to the start node.
-     * H Score indicates the euclidean distance from this node to the end node.
-     * F Score is the G Score + H Score.
-     */
-    private int gScore, hScore, fScore;
-
-    /**
-     * The node this node came from in the A* search.
+     * The grid this node belongs to.
      */
-    private Node cameFrom;
+    private final Grid grid;
 
     /**
-     * The list of neighbors to this node.
-     */
-    private LinkedList<Node> neighbors;
-
-    /**
-     * Is this node an obstacle?
+     * The x and y coordinates of this node in a grid.
      */
-    private boolean obstacle;
+    private final int x, y;
 
     /**
-     * Creates a new node for a grid.
+     * Creates a new view of a node in a grid.
      *
-     * @param x The grid X coordinate for this node.
-     * @param y The grid Y coordinate for this node.
+     * @param grid The grid the node belongs to.
+     * @param x    The grid X coordinate for this node.
+     * @param y    The grid Y coordinate for this node.
      */
-    public Node(int x, int y) {
+    Node(Grid grid, int x, int y) {
+        this.grid = grid;
         this.x = x;
         this.y = y;
-
-        gScore = Integer.MAX_VALUE;
-        hScore = 0;
-        fScore = gScore + hScore;
-        neighbors = new LinkedList<>();
-        obstacle = false;
     }
 
     /**
-     * Gets the list of neighbors for this node.
+     * Gets the list of neighbors for this node. The neighbors are worked out from the node's
+     * coordinates each time this is called.
      *
      * @return The neighbors for this node.
      */
     public LinkedList<Node> getNeighbors() {
+        LinkedList<Node> neighbors = new LinkedList<>();
+        if (x - 1 >= 0)
+            neighbors.add(grid.getNode(x - 1, y));
+        if (y - 1 >= 0)
+            neighbors.add(grid.getNode(x, y - 1));
+        if (x + 1 < grid.getWidth())
+            neighbors.add(grid.getNode(x + 1, y));
+        if (y + 1 < grid.getHeight())
+            neighbors.add(grid.getNode(x, y + 1));
         return neighbors;
     }
 
-    /**
-     * Adds a neighbor to the list of neighbors for this node.
-     *
-     * @param node The neighbor node.
-     */
-    public void addNeighbor(Node node) {
-        neighbors.add(node);
-    }
-
-    /**
-     * Gets the node this node came from during the A* search.
-     *
-     * @return The node this node came from.
-     */
-    public Node getCameFrom() {
-        return cameFrom;
-    }
-
-    /**
-     * Set where this node came from during the A* search.
-     *
-     * @param cameFrom The node this node is coming from.
-     */
-    public void setCameFrom(Node cameFrom) {
-        this.cameFrom = cameFrom;
-    }
-
     /**
      * Gets the grid X coordinate for this node.
      *
@@ -113,7 +76,7 @@ public class Node implements Comparable {
      * @return True if the node is an obstacle, false otherwise.
      */
     public boolean isObstacle() {
-        return obstacle;
+        return grid.isObstacle(id());
     }
 
     /**
@@ -122,76 +85,42 @@ public class Node implements Comparable {
      * @param obstacle True if the node will become an obstacle, false otherwise.
      */
     public void setObstacle(boolean obstacle) {
-        this.obstacle = obstacle;
+        grid.setObstacle(id(), obstacle);
     }
 
     /**
-     * Gets the Euclidean distance from this node to the start node.
+     * Gets the cost of walking on the node.
      *
-     * @return The Euclidean distance from this node to the start node.
+     * @return The cost of the node, from 1 to {@link Grid#MAX_COST}.
      */
-    public int getGScore() {
-        return gScore;
+    public int getCost() {
+        return grid.getCost(id());
     }
 
     /**
-     * Sets the Euclidean distance from this node to the start node.
-     */
-    public void setGScore(int gScore) {
-        this.gScore = gScore;
-    }
-
-    /**
-     * Gets the Euclidean distance from this node to the end node.
+     * Sets the cost of walking on the node.
      *
-     * @return The Euclidean distance from this node to the end node.
+     * @param cost The cost of the node, from 1 to {@link Grid#MAX_COST}.
      */
-    public int getHScore() {
-        return hScore;
+    public void setCost(int cost) {
+        grid.setCost(id(), cost);
     }
 
-
     /**
-     * Sets the Euclidean distance from this node to the end node.
-     */
-    public void setHScore(int hScore) {
-        this.hScore = hScore;
-    }
-
-    /**
-     * Gets the G Score + H score
-     *
-     * @return G Score + H Score
+     * Resets all of the nodes values.
      */
-    public int getFScore() {
-        return fScore;
+    public void resetNode() {
+        grid.setObstacle(id(), false);
+        grid.setCost(id(), 1);
     }
 
     /**
-     * Manually set the F score for this node.
+     * Gets the id of the cell this node views.
      *
-     * @param fScore The new F score.
+     * @return The cell id of this node.
      */
-    public void setFScore(int fScore) {
-        this.fScore = fScore;
-    }
-
-    /**
-     * Update the F score node based on the current G Score and H Score.
-     */
-    public void updateFScore() {
-        fScore = gScore + hScore;
-    }
-
-    /**
-     * Resets all of the nodes values.
-     */
-    public void resetNode() {
-        gScore = Integer.MAX_VALUE;
-        hScore = 0;
-        fScore = gScore + hScore;
-        setObstacle(false);
-        setCameFrom(null);
+    private int id() {
+        return grid.cellId(x, y);
     }
 
     @Override
@@ -199,16 +128,14 @@ public class Node implements Comparable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Node node = (Node) o;
-        return x == node.x &&
-                y == node.y &&
-                Float.compare(node.gScore, gScore) == 0 &&
-                Float.compare(node.hScore, hScore) == 0 &&
-                Float.compare(node.fScore, fScore) == 0;
+        return grid == node.grid &&
+                x == node.x &&
+                y == node.y;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y, gScore, hScore, fScore);
+        return 31 * x + y;
     }
 
     @Override
@@ -216,16 +143,7 @@ public class Node implements Comparable {
         return "models.Node{" +
                 "x=" + x +
                 ", y=" + y +
-                ", gScore=" + gScore +
-                ", hScore=" + hScore +
-                ", fScore=" + fScore +
-                ", cameFrom=" + cameFrom +
+                ", obstacle=" + isObstacle() +
                 '}';
     }
-
-    @Override
-    public int compareTo(Object o) {
-        Node other = (Node) o;
-        return Float.compare(fScore, other.fScore);
-    }
 }
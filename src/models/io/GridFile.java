@@ -0,0 +1,185 @@
+package models.io;
+
+import models.Grid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes grids in a compact binary format that can be memory mapped, so even a huge map
+ * is usable as soon as it is opened, without parsing it or copying it onto the heap.
+ * <p>
+ * A file is a header of {@value #HEADER_SIZE} bytes followed by the obstacle flags in the same
+ * layout as {@link Grid#getObstacleWords()}, 64 cells to a little endian word. The header holds,
+ * as little endian ints, the magic number, the format version, the width, the height and a
+ * flags field, and is padded with zeroes so the words start 8 byte aligned. If the flags have
+ * {@link #HAS_COSTS} set, the words are followed by the cost of every cell as one unsigned byte.
+ */
+public class GridFile {
+    /**
+     * The first four bytes of every grid file, which read "GRID".
+     */
+    private static final int MAGIC = 0x44495247;
+
+    /**
+     * The version of the format written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The flag set when the file holds a cost layer.
+     */
+    public static final int HAS_COSTS = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = 32;
+
+    /**
+     * The number of words written at once.
+     */
+    private static final int CHUNK_WORDS = 8192;
+
+    /**
+     * This class only has static methods.
+     */
+    private GridFile() {
+    }
+
+    /**
+     * Maps a grid file read only. Changing an obstacle of the grid throws a
+     * {@link java.nio.ReadOnlyBufferException}.
+     *
+     * @param path The file to map.
+     * @return The grid, backed by the file.
+     * @throws IOException If the file can not be read or is not a grid file.
+     */
+    public static Grid map(Path path) throws IOException {
+        return map(path, FileChannel.MapMode.READ_ONLY);
+    }
+
+    /**
+     * Maps a grid file.
+     *
+     * @param path The file to map.
+     * @param mode {@code READ_ONLY} for a grid that can not be changed, {@code READ_WRITE} to save
+     *             every change to the file, or {@code PRIVATE} to keep changes in memory only.
+     *             Both of the latter need the file to be writable.
+     * @return The grid, backed by the file.
+     * @throws IOException If the file can not be read or is not a grid file.
+     */
+    public static Grid map(Path path, FileChannel.MapMode mode) throws IOException {
+        boolean writable = mode != FileChannel.MapMode.READ_ONLY;
+        try (FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(path + " is too short to be a grid file.");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a grid file.");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + " has version " + version + ", only version " + VERSION
+                        + " is supported.");
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            int flags = header.getInt();
+            // Cell ids are ints, and searches keep arrays with an entry for every cell.
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 8) {
+                throw new IOException(path + " has an invalid size of " + width + "x" + height + ".");
+            }
+
+            long length = (long) Grid.wordCount(width, height) * Long.BYTES;
+            long costLength = (flags & HAS_COSTS) != 0 ? (long) width * height : 0;
+            if (channel.size() < HEADER_SIZE + length + costLength) {
+                throw new IOException(path + " is truncated.");
+            }
+
+            // The mappings stay valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(mode, HEADER_SIZE, length);
+            LongBuffer words = buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            ByteBuffer costs = costLength == 0 ? null : channel.map(mode, HEADER_SIZE + length, costLength);
+            return new Grid(width, height, words, costs);
+        }
+    }
+
+    /**
+     * Writes a grid to a file, replacing the file if it exists.
+     *
+     * @param grid The grid to write.
+     * @param path The file to write to.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(Grid grid, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(grid.getWidth()).putInt(grid.getHeight())
+                    .putInt(grid.hasCosts() ? HAS_COSTS : 0);
+            header.clear();
+            writeFully(channel, header);
+
+            LongBuffer words = grid.getObstacleWords();
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_WORDS * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (words.hasRemaining()) {
+                chunk.clear();
+                LongBuffer view = chunk.asLongBuffer();
+                int count = Math.min(CHUNK_WORDS, words.remaining());
+                for (int i = 0; i < count; i++) {
+                    view.put(words.get());
+                }
+                chunk.limit(count * Long.BYTES);
+                writeFully(channel, chunk);
+            }
+
+            if (grid.hasCosts()) {
+                writeFully(channel, grid.getCostBytes());
+            }
+        }
+    }
+
+    /**
+     * Reads bytes from a channel until a buffer is full.
+     *
+     * @param channel  The channel to read from.
+     * @param buffer   The buffer to fill.
+     * @param position The position in the channel to read from.
+     * @throws IOException If the channel can not be read or ends too early.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Writes every remaining byte of a buffer to a channel.
+     *
+     * @param channel The channel to write to.
+     * @param buffer  The bytes to write.
+     * @throws IOException If the channel can not be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
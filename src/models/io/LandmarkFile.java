@@ -0,0 +1,214 @@
+package models.io;
+
+import models.Grid;
+import models.search.LandmarkHeuristic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the distance tables of a {@link LandmarkHeuristic}, so they only have to be
+ * worked out once for a map.
+ * <p>
+ * A file is a header of {@value #HEADER_SIZE} bytes, then the ids of the landmarks, then the
+ * distance table in the layout of {@link LandmarkHeuristic#getDistanceTable()}, all as little
+ * endian ints. The header holds the magic number, the format version, the width and height of the
+ * grid, a flags field and the number of landmarks, and is padded with zeroes.
+ */
+public class LandmarkFile {
+    /**
+     * The first four bytes of every landmark file, which read "LMRK".
+     */
+    private static final int MAGIC = 0x4B524D4C;
+
+    /**
+     * The version of the format written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The flag set when the distances were worked out with diagonal steps.
+     */
+    public static final int DIAGONALS = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = 32;
+
+    /**
+     * The number of ints read or written at once.
+     */
+    private static final int CHUNK_INTS = 16384;
+
+    /**
+     * This class only has static methods.
+     */
+    private LandmarkFile() {
+    }
+
+    /**
+     * Reads a landmark file, checking that it was made for a grid of the same size.
+     *
+     * @param path The file to read.
+     * @param grid The grid the heuristic will be used on.
+     * @return The heuristic.
+     * @throws IOException If the file can not be read, is not a landmark file or was made for a
+     *                     grid of another size.
+     */
+    public static LandmarkHeuristic read(Path path, Grid grid) throws IOException {
+        LandmarkHeuristic heuristic = read(path);
+        if (heuristic.getWidth() != grid.getWidth() || heuristic.getHeight() != grid.getHeight()) {
+            throw new IOException(path + " was made for a " + heuristic.getWidth() + "x" + heuristic.getHeight()
+                    + " grid, not " + grid.getWidth() + "x" + grid.getHeight() + ".");
+        }
+        return heuristic;
+    }
+
+    /**
+     * Reads a landmark file.
+     *
+     * @param path The file to read.
+     * @return The heuristic.
+     * @throws IOException If the file can not be read or is not a landmark file.
+     */
+    public static LandmarkHeuristic read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(path + " is too short to be a landmark file.");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a landmark file.");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + " has version " + version + ", only version " + VERSION
+                        + " is supported.");
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            int flags = header.getInt();
+            int count = header.getInt();
+            long length = (long) width * height * count;
+            if (width <= 0 || height <= 0 || count <= 0 || length > Integer.MAX_VALUE - 8) {
+                throw new IOException(path + " has an invalid size of " + width + "x" + height + " with "
+                        + count + " landmarks.");
+            }
+            if (channel.size() < HEADER_SIZE + (count + length) * Integer.BYTES) {
+                throw new IOException(path + " is truncated.");
+            }
+
+            int[] landmarks = new int[count];
+            int[] distances = new int[(int) length];
+            long position = HEADER_SIZE;
+            position = readInts(channel, position, landmarks);
+            readInts(channel, position, distances);
+            return new LandmarkHeuristic(width, height, (flags & DIAGONALS) != 0, landmarks, distances);
+        }
+    }
+
+    /**
+     * Writes a landmark heuristic to a file, replacing the file if it exists.
+     *
+     * @param heuristic The heuristic to write.
+     * @param path      The file to write to.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(LandmarkHeuristic heuristic, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int[] landmarks = heuristic.getLandmarks();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(heuristic.getWidth()).putInt(heuristic.getHeight())
+                    .putInt(heuristic.isCheckDiagonals() ? DIAGONALS : 0).putInt(landmarks.length);
+            header.clear();
+            writeFully(channel, header);
+
+            writeInts(channel, IntBuffer.wrap(landmarks));
+            writeInts(channel, heuristic.getDistanceTable());
+        }
+    }
+
+    /**
+     * Reads little endian ints from a channel into an array.
+     *
+     * @param channel  The channel to read from.
+     * @param position The position of the first int in the channel.
+     * @param values   The array to fill.
+     * @return The position after the last int.
+     * @throws IOException If the channel can not be read.
+     */
+    private static long readInts(FileChannel channel, long position, int[] values) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_INTS * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = 0; offset < values.length; offset += CHUNK_INTS) {
+            int count = Math.min(CHUNK_INTS, values.length - offset);
+            chunk.clear().limit(count * Integer.BYTES);
+            readFully(channel, chunk, position);
+            position += (long) count * Integer.BYTES;
+            chunk.flip();
+            chunk.asIntBuffer().get(values, offset, count);
+        }
+        return position;
+    }
+
+    /**
+     * Writes the remaining ints of a buffer to a channel as little endian ints.
+     *
+     * @param channel The channel to write to.
+     * @param values  The ints to write.
+     * @throws IOException If the channel can not be written.
+     */
+    private static void writeInts(FileChannel channel, IntBuffer values) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_INTS * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (values.hasRemaining()) {
+            int count = Math.min(CHUNK_INTS, values.remaining());
+            chunk.clear();
+            IntBuffer view = chunk.asIntBuffer();
+            for (int i = 0; i < count; i++) {
+                view.put(values.get());
+            }
+            chunk.limit(count * Integer.BYTES);
+            writeFully(channel, chunk);
+        }
+    }
+
+    /**
+     * Reads bytes from a channel until a buffer is full.
+     *
+     * @param channel  The channel to read from.
+     * @param buffer   The buffer to fill.
+     * @param position The position in the channel to read from.
+     * @throws IOException If the channel can not be read or ends too early.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Writes every remaining byte of a buffer to a channel.
+     *
+     * @param channel The channel to write to.
+     * @param buffer  The bytes to write.
+     * @throws IOException If the channel can not be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package models.io;
+
+import models.Grid;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads and writes the text map format of the MovingAI pathfinding benchmarks.
+ * <p>
+ * A map starts with a header naming its type, height and width, followed by a line reading
+ * {@code map} and one line of characters per row. Open ground ({@code .} and {@code G}) and
+ * swamp ({@code S}) can be walked on, every other terrain is read as an obstacle. Maps are
+ * written with {@code .} for open cells and {@code @} for obstacles.
+ */
+public class MovingAiMap {
+    /**
+     * This class only has static methods.
+     */
+    private MovingAiMap() {
+    }
+
+    /**
+     * Reads a map file.
+     *
+     * @param path The file to read.
+     * @return The grid described by the file.
+     * @throws IOException If the file can not be read or is not a valid map.
+     */
+    public static Grid read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a map.
+     *
+     * @param reader The reader to read the map from.
+     * @return The grid described by the map.
+     * @throws IOException If the map can not be read or is not valid.
+     */
+    public static Grid read(BufferedReader reader) throws IOException {
+        int width = -1;
+        int height = -1;
+
+        // The header lines can come in any order, up to the line starting the rows.
+        String line;
+        while ((line = reader.readLine()) != null && !line.trim().equals("map")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2) {
+                continue;
+            }
+
+            try {
+                if (parts[0].equals("width")) {
+                    width = Integer.parseInt(parts[1]);
+                } else if (parts[0].equals("height")) {
+                    height = Integer.parseInt(parts[1]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid map header: " + line, e);
+            }
+        }
+        if (line == null) {
+            throw new IOException("The map has no \"map\" line.");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IOException("The map header has no valid width and height.");
+        }
+
+        Grid grid = new Grid(width, height);
+        for (int y = 0; y < height; y++) {
+            line = reader.readLine();
+            if (line == null || line.length() < width) {
+                throw new IOException("Row " + y + " of the map is missing or shorter than " + width + ".");
+            }
+
+            for (int x = 0; x < width; x++) {
+                if (!isPassable(line.charAt(x))) {
+                    grid.setObstacle(grid.cellId(x, y), true);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Writes a grid as a map file, replacing the file if it exists.
+     *
+     * @param grid The grid to write.
+     * @param path The file to write to.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(Grid grid, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            writer.write("type octile\n");
+            writer.write("height " + grid.getHeight() + "\n");
+            writer.write("width " + grid.getWidth() + "\n");
+            writer.write("map\n");
+
+            char[] row = new char[grid.getWidth()];
+            for (int y = 0; y < grid.getHeight(); y++) {
+                for (int x = 0; x < row.length; x++) {
+                    row[x] = grid.isObstacle(grid.cellId(x, y)) ? '@' : '.';
+                }
+                writer.write(row);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Can the given terrain be walked on?
+     *
+     * @param terrain The character of the terrain.
+     * @return True if the terrain can be walked on, false otherwise.
+     */
+    private static boolean isPassable(char terrain) {
+        return terrain == '.' || terrain == 'G' || terrain == 'S';
+    }
+}
@@ -0,0 +1,187 @@
+package models.search;
+
+import models.Grid;
+
+/**
+ * The A* search algorithm over a grid. All of the search's values are kept in a
+ * {@link SearchContext}, so a search does not allocate once the context has warmed up.
+ * <p>
+ * By default the search estimates the remaining cost with {@link Heuristics#OCTILE} when
+ * diagonal steps are allowed and {@link Heuristics#MANHATTAN} when they are not, which are the
+ * tightest admissible estimates for each.
+ */
+public class AStarSearch implements Pathfinder {
+    /**
+     * The cost of a step to a node next to the current node, and to a node diagonal to it.
+     */
+    public static final int STRAIGHT_COST = 10, DIAGONAL_COST = 14;
+
+    /**
+     * The heuristics used with and without diagonal steps.
+     */
+    private final Heuristic diagonalHeuristic, straightHeuristic;
+
+    /**
+     * Creates a new A* search using the tightest admissible heuristic for each kind of movement.
+     */
+    public AStarSearch() {
+        this(Heuristics.OCTILE, Heuristics.MANHATTAN);
+    }
+
+    /**
+     * Creates a new A* search using the given heuristic. If it overestimates, paths are found
+     * faster but may not be the shortest.
+     *
+     * @param heuristic The heuristic to use with and without diagonal steps.
+     */
+    public AStarSearch(Heuristic heuristic) {
+        this(heuristic, heuristic);
+    }
+
+    /**
+     * Creates a new A* search.
+     *
+     * @param diagonalHeuristic The heuristic to use when diagonal steps are allowed.
+     * @param straightHeuristic The heuristic to use when they are not.
+     */
+    public AStarSearch(Heuristic diagonalHeuristic, Heuristic straightHeuristic) {
+        this.diagonalHeuristic = diagonalHeuristic;
+        this.straightHeuristic = straightHeuristic;
+    }
+
+    /**
+     * Performs A* search algorithm for the shortest path from a start cell to an end cell. If a
+     * path is found it is kept in the context.
+     *
+     * @param context        The context holding the search's values.
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if we check cells diagonal to the current cell, false otherwise.
+     * @return True if a path was found, false otherwise.
+     */
+    @Override
+    public boolean search(SearchContext context, int start, int goal, boolean checkDiagonals) {
+        Grid grid = context.getGrid();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        OpenList openNodes = context.getOpenList();
+        Heuristic heuristic = checkDiagonals ? diagonalHeuristic : straightHeuristic;
+        int goalX = goal % width;
+        int goalY = goal / width;
+
+        context.reset();
+        // Start cell starts at 0 since the distance to itself is 0.
+        context.update(start, 0, -1);
+        // F Score starts as 0 + distance from start to end.
+        context.open(start, heuristic.estimate(start, goal, Math.abs(start % width - goalX),
+                Math.abs(start / width - goalY)));
+
+        while (!openNodes.isEmpty()) {
+            // Get the cell with the lowest F score.
+            int current = openNodes.poll();
+
+            // If we reached the goal, build the path and return it.
+            if (current == goal) {
+                context.buildPath(goal);
+                if (heuristic.isAdmissible(checkDiagonals)) {
+                    context.markOptimal();
+                }
+                return true;
+            }
+
+            context.markClosed(current);
+
+            int x = current % width;
+            int y = current / width;
+
+            // Neighbors are derived from the coordinates rather than stored, in the order
+            // left, above, right, below.
+            if (x - 1 >= 0) {
+                checkNeighbor(context, current, current - 1, STRAIGHT_COST, heuristic, goal, goalX, goalY);
+            }
+            if (y - 1 >= 0) {
+                checkNeighbor(context, current, current - width, STRAIGHT_COST, heuristic, goal, goalX, goalY);
+            }
+            if (x + 1 < width) {
+                checkNeighbor(context, current, current + 1, STRAIGHT_COST, heuristic, goal, goalX, goalY);
+            }
+            if (y + 1 < height) {
+                checkNeighbor(context, current, current + width, STRAIGHT_COST, heuristic, goal, goalX, goalY);
+            }
+
+            if (checkDiagonals) {
+                // Check the cells diagonal to the bottom left and top left.
+                if (x - 1 >= 0) {
+                    if (y - 1 >= 0) {
+                        checkNeighbor(context, current, current - width - 1, DIAGONAL_COST,
+                                heuristic, goal, goalX, goalY);
+                    }
+                    if (y + 1 < height) {
+                        checkNeighbor(context, current, current + width - 1, DIAGONAL_COST,
+                                heuristic, goal, goalX, goalY);
+                    }
+                }
+
+                // Check the cells diagonal to the bottom right and top right.
+                if (x + 1 < width) {
+                    if (y - 1 >= 0) {
+                        checkNeighbor(context, current, current - width + 1, DIAGONAL_COST,
+                                heuristic, goal, goalX, goalY);
+                    }
+                    if (y + 1 < height) {
+                        checkNeighbor(context, current, current + width + 1, DIAGONAL_COST,
+                                heuristic, goal, goalX, goalY);
+                    }
+                }
+            }
+        }
+
+        // If we can't find a path to the end, return nothing.
+        return false;
+    }
+
+    /**
+     * Checks a cell next to the current cell, and opens it if it is worth walking or moves it up
+     * the open list if it is already open.
+     *
+     * @param context   The context holding the search's values.
+     * @param current   The id of the current cell.
+     * @param neighbor  The id of the neighbor cell.
+     * @param stepCost  The base cost of the step from the current cell to the neighbor.
+     * @param heuristic The heuristic estimating the cost to the goal.
+     * @param goal      The id of the goal cell.
+     * @param goalX     The X coordinate of the goal cell.
+     * @param goalY     The Y coordinate of the goal cell.
+     */
+    private void checkNeighbor(SearchContext context, int current, int neighbor, int stepCost,
+                               Heuristic heuristic, int goal, int goalX, int goalY) {
+        if (context.isClosed(neighbor) || context.getGrid().isObstacle(neighbor)) {
+            return;
+        }
+
+        int newGScore = context.getGScore(current) + context.getGrid().getStepCost(current, neighbor, stepCost);
+        if (newGScore >= context.getGScore(neighbor)) {
+            return;
+        }
+
+        context.update(neighbor, newGScore, current);
+        int width = context.getGrid().getWidth();
+        int fScore = newGScore + heuristic.estimate(neighbor, goal, Math.abs(neighbor % width - goalX),
+                Math.abs(neighbor / width - goalY));
+        context.open(neighbor, fScore);
+    }
+
+    /**
+     * Finds the octile distance between two cells, which is the exact cost between them on an
+     * open grid with straight steps of {@link #STRAIGHT_COST} and diagonal steps of
+     * {@link #DIAGONAL_COST}.
+     *
+     * @param a     The id of the first cell.
+     * @param b     The id of the second cell.
+     * @param width The width of the grid.
+     * @return The octile distance between the two cells.
+     */
+    static int findOctileDistance(int a, int b, int width) {
+        return Heuristics.OCTILE.estimate(Math.abs(a % width - b % width), Math.abs(a / width - b / width));
+    }
+}
@@ -0,0 +1,513 @@
+package models.search;
+
+import models.Grid;
+
+import java.util.Arrays;
+
+/**
+ * An anytime search (ARA*) that can be run in small slices of work, for callers with a frame
+ * budget such as the event thread of a user interface.
+ * <p>
+ * The search starts as weighted A*, with the heuristic inflated by a weight, which finds a path
+ * quickly that costs at most the weight times the cheapest path. It then lowers the weight step by
+ * step and improves the path, reusing the work of the searches before instead of starting over,
+ * until the weight reaches 1 and the path is the cheapest one.
+ * <p>
+ * {@link #run(long)} and {@link #runFor(long)} do a bounded amount of work and return, and the
+ * next call carries on exactly where the last one stopped. In between, {@link #getPath()} gives
+ * the best path found so far, and before the first path is found {@link #getPartialPath()} gives
+ * the path to the expanded cell closest to the goal. The grid must not change while the search
+ * runs, so create a new search after changing it. A search is not thread safe.
+ */
+public class AnytimeSearch {
+    /**
+     * The weight the first search starts with, and how much it is lowered after each path, unless
+     * set otherwise.
+     */
+    public static final double DEFAULT_INITIAL_WEIGHT = 2.5, DEFAULT_WEIGHT_STEP = 0.5;
+
+    /**
+     * The number of steps a weight is split into, so keys can be kept as whole numbers.
+     */
+    private static final int WEIGHT_SCALE = 1000;
+
+    /**
+     * The number of expansions between checks of the clock in {@link #runFor(long)}.
+     */
+    private static final int CLOCK_INTERVAL = 64;
+
+    /**
+     * The cost of a cell that has not been reached.
+     */
+    private static final int UNSEEN = Integer.MAX_VALUE;
+
+    /**
+     * The grid being searched.
+     */
+    private final Grid grid;
+
+    /**
+     * The cells the path runs between.
+     */
+    private final int start, goal;
+
+    /**
+     * Are diagonal steps allowed?
+     */
+    private final boolean checkDiagonals;
+
+    /**
+     * How much the weight is lowered after each path, in steps of {@link #WEIGHT_SCALE}.
+     */
+    private final int weightStep;
+
+    /**
+     * The heuristic, estimating the cost from a cell to the goal.
+     */
+    private final Heuristic heuristic;
+
+    /**
+     * The current weight, in steps of {@link #WEIGHT_SCALE}.
+     */
+    private int weight;
+
+    /**
+     * The best known cost from the start to every cell, and the cell it is reached from.
+     */
+    private final int[] gScores, cameFrom;
+
+    /**
+     * The round of the search each cell was last expanded in. Cells are only expanded once per
+     * round, and a round starts each time the weight is lowered.
+     */
+    private final int[] expandedRound;
+    private int round;
+
+    /**
+     * The cells expanded in the current round, in the order they were expanded.
+     */
+    private final IntList expanded;
+
+    /**
+     * The cells waiting to be expanded this round, ordered by their weighted F Score.
+     */
+    private final IndexedBinaryHeap open;
+
+    /**
+     * The cells that got cheaper after they were expanded this round. They are expanded again in
+     * the next round.
+     */
+    private final IntList inconsistent;
+    private final boolean[] isInconsistent;
+
+    /**
+     * The best path found so far and its cost, or null if none was found yet.
+     */
+    private int[] path;
+    private int pathCost;
+
+    /**
+     * The weight of the round that found the best path, in steps of {@link #WEIGHT_SCALE}. The
+     * path costs at most this many times the cheapest path.
+     */
+    private int pathWeight;
+
+    /**
+     * Counts the changes to the path {@link #getPartialPath()} gives, so callers can tell when it
+     * needs building again.
+     */
+    private int pathVersion;
+
+    /**
+     * The expanded cell with the lowest estimate to the goal, the end of the partial path.
+     */
+    private int closestCell;
+
+    /**
+     * Is the search over, because the cheapest path was found or there is none?
+     */
+    private boolean done;
+
+    /**
+     * The number of cells expanded so far.
+     */
+    private long expansions;
+
+    /**
+     * Creates a new search with the default weights. No cells are expanded until it is run.
+     *
+     * @param grid           The grid to search.
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     */
+    public AnytimeSearch(Grid grid, int start, int goal, boolean checkDiagonals) {
+        this(grid, start, goal, checkDiagonals, DEFAULT_INITIAL_WEIGHT, DEFAULT_WEIGHT_STEP);
+    }
+
+    /**
+     * Creates a new search. No cells are expanded until it is run.
+     *
+     * @param grid           The grid to search.
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param initialWeight  The weight of the first search, at least 1. Higher weights find the
+     *                       first path sooner, but it may cost more.
+     * @param weightStep     How much the weight is lowered after each path, more than 0.
+     */
+    public AnytimeSearch(Grid grid, int start, int goal, boolean checkDiagonals, double initialWeight,
+                         double weightStep) {
+        if (initialWeight < 1 || weightStep <= 0) {
+            throw new IllegalArgumentException("Can not start at a weight of " + initialWeight
+                    + " and lower it by " + weightStep + ".");
+        }
+
+        int cells = grid.getWidth() * grid.getHeight();
+        this.grid = grid;
+        this.start = start;
+        this.goal = goal;
+        this.checkDiagonals = checkDiagonals;
+        this.weight = (int) Math.round(initialWeight * WEIGHT_SCALE);
+        this.weightStep = Math.max(1, (int) Math.round(weightStep * WEIGHT_SCALE));
+        heuristic = checkDiagonals ? Heuristics.OCTILE : Heuristics.MANHATTAN;
+
+        gScores = new int[cells];
+        cameFrom = new int[cells];
+        expandedRound = new int[cells];
+        Arrays.fill(gScores, UNSEEN);
+        open = new IndexedBinaryHeap(cells);
+        inconsistent = new IntList(16);
+        isInconsistent = new boolean[cells];
+        expanded = new IntList(16);
+        round = 1;
+
+        gScores[start] = 0;
+        cameFrom[start] = -1;
+        closestCell = start;
+        open.insert(start, key(start));
+    }
+
+    /**
+     * Runs the search until it is done or has expanded a number of cells.
+     *
+     * @param maxExpansions The most cells to expand before returning.
+     * @return True if the search is done, false if there is more to do.
+     */
+    public boolean run(long maxExpansions) {
+        long limit = expansions + maxExpansions;
+        while (!done && expansions < limit) {
+            step();
+        }
+        return done;
+    }
+
+    /**
+     * Runs the search until it is done or a time budget is used up. The clock is checked every
+     * {@value #CLOCK_INTERVAL} expansions, so a call can overrun by that much work.
+     *
+     * @param nanos The time budget in nanoseconds.
+     * @return True if the search is done, false if there is more to do.
+     */
+    public boolean runFor(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (!done && System.nanoTime() < deadline) {
+            run(CLOCK_INTERVAL);
+        }
+        return done;
+    }
+
+    /**
+     * Does one unit of work: expands a cell, or finishes the current round.
+     */
+    private void step() {
+        // The round is over once no open cell could lead to a cheaper path to the goal.
+        if (open.isEmpty() || open.peekKey() >= (long) gScores[goal] * WEIGHT_SCALE) {
+            finishRound();
+            return;
+        }
+
+        int current = open.poll();
+        expandedRound[current] = round;
+        expanded.add(current);
+        expansions++;
+        if (path == null && estimate(current) < estimate(closestCell)) {
+            closestCell = current;
+            pathVersion++;
+        }
+
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int x = current % width;
+        int y = current / width;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = x + dx;
+                int ny = y + dy;
+                if ((dx == 0 && dy == 0) || (!checkDiagonals && dx != 0 && dy != 0) || nx < 0 || nx >= width
+                        || ny < 0 || ny >= height) {
+                    continue;
+                }
+
+                int neighbor = ny * width + nx;
+                if (grid.isObstacle(neighbor)) {
+                    continue;
+                }
+
+                int newGScore = gScores[current] + grid.getStepCost(current, neighbor,
+                        dx != 0 && dy != 0 ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+                if (newGScore >= gScores[neighbor]) {
+                    continue;
+                }
+
+                gScores[neighbor] = newGScore;
+                cameFrom[neighbor] = current;
+                if (expandedRound[neighbor] != round) {
+                    if (open.contains(neighbor)) {
+                        open.update(neighbor, key(neighbor));
+                    } else {
+                        open.insert(neighbor, key(neighbor));
+                    }
+                } else if (!isInconsistent[neighbor]) {
+                    // Expanded cells are not expanded twice in a round, which is what keeps later
+                    // rounds cheap. The saving is passed on in the next round.
+                    isInconsistent[neighbor] = true;
+                    inconsistent.add(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the path of the round that just ended, and starts the next round with a lower weight,
+     * or ends the search if the weight is already 1.
+     */
+    private void finishRound() {
+        if (gScores[goal] != UNSEEN) {
+            // Cells improved after they were expanded can make the path cheaper than the goal's G
+            // Score says, so the path is costed step by step.
+            int[] cells = buildPath(goal);
+            int cost = costOf(cells);
+            if (path == null || cost < pathCost) {
+                path = cells;
+                pathCost = cost;
+                pathVersion++;
+            }
+        }
+        pathWeight = weight;
+
+        if (weight <= WEIGHT_SCALE || gScores[goal] == UNSEEN) {
+            // Without a path after searching everything reachable, there is none at any weight.
+            done = true;
+            return;
+        }
+
+        weight = Math.max(WEIGHT_SCALE, weight - weightStep);
+        round++;
+        expanded.clear();
+        for (int i = 0; i < inconsistent.size(); i++) {
+            int cell = inconsistent.get(i);
+            isInconsistent[cell] = false;
+            if (!open.contains(cell)) {
+                open.insert(cell, key(cell));
+            }
+        }
+        inconsistent.clear();
+
+        // Every key depends on the weight, so the open cells are put back in with their new keys.
+        IntList cells = new IntList(open.size());
+        while (!open.isEmpty()) {
+            cells.add(open.poll());
+        }
+        for (int i = 0; i < cells.size(); i++) {
+            open.insert(cells.get(i), key(cells.get(i)));
+        }
+    }
+
+    /**
+     * Follows the cells each cell was reached from back from a cell.
+     *
+     * @param end The id of the last cell of the path.
+     * @return The cell ids on the path from the start to the cell.
+     */
+    private int[] buildPath(int end) {
+        int length = 1;
+        for (int cell = end; cell != start; cell = cameFrom[cell]) {
+            length++;
+        }
+
+        int[] cells = new int[length];
+        int cell = end;
+        for (int i = length - 1; i > 0; i--) {
+            cells[i] = cell;
+            cell = cameFrom[cell];
+        }
+        cells[0] = start;
+        return cells;
+    }
+
+    /**
+     * Adds up the cost of the steps of a path.
+     *
+     * @param cells The cell ids on the path.
+     * @return The cost of the path.
+     */
+    private int costOf(int[] cells) {
+        int width = grid.getWidth();
+        int cost = 0;
+        for (int i = 1; i < cells.length; i++) {
+            boolean diagonal = cells[i - 1] % width != cells[i] % width && cells[i - 1] / width != cells[i] / width;
+            cost += grid.getStepCost(cells[i - 1], cells[i],
+                    diagonal ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+        }
+        return cost;
+    }
+
+    /**
+     * Gets the weighted F Score of a cell.
+     *
+     * @param cell The id of the cell.
+     * @return The key of the cell in the open list.
+     */
+    private long key(int cell) {
+        return (long) gScores[cell] * WEIGHT_SCALE + (long) weight * estimate(cell);
+    }
+
+    /**
+     * Estimates the cost from a cell to the goal.
+     *
+     * @param cell The id of the cell.
+     * @return The estimated cost.
+     */
+    private int estimate(int cell) {
+        int width = grid.getWidth();
+        return heuristic.estimate(cell, goal, Math.abs(cell % width - goal % width),
+                Math.abs(cell / width - goal / width));
+    }
+
+    /**
+     * Gets the best path found so far.
+     *
+     * @return A copy of the cell ids on the path from the start to the goal, or null if no path
+     *         was found yet.
+     */
+    public int[] getPath() {
+        return path == null ? null : path.clone();
+    }
+
+    /**
+     * Gets the cost of the best path found so far.
+     *
+     * @return The cost, or -1 if no path was found yet.
+     */
+    public int getPathCost() {
+        return path == null ? -1 : pathCost;
+    }
+
+    /**
+     * Gets the path to the expanded cell closest to the goal, for an agent that has to start
+     * moving before a path is found. Once a path is found, this is the path.
+     *
+     * @return The cell ids on the path from the start to the cell closest to the goal.
+     */
+    public int[] getPartialPath() {
+        return path != null ? path.clone() : buildPath(closestCell);
+    }
+
+    /**
+     * Gets a count that goes up each time the path {@link #getPartialPath()} gives changes, that
+     * is when a cheaper path is found, or before the first path when a cell closer to the goal is
+     * expanded.
+     *
+     * @return The number of changes to the path so far.
+     */
+    public int getPathVersion() {
+        return pathVersion;
+    }
+
+    /**
+     * Gets how far the best path so far can be from the cheapest path. It costs at most this many
+     * times the cheapest path.
+     *
+     * @return The factor, 1 once the path is the cheapest one, or infinity if no path was found
+     *         yet.
+     */
+    public double getSuboptimalityBound() {
+        if (path == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (done) {
+            return 1;
+        }
+
+        return (double) pathWeight / WEIGHT_SCALE;
+    }
+
+    /**
+     * Is the search over? It is once the cheapest path was found, or once it is known there is no
+     * path.
+     *
+     * @return True if the search is done, false otherwise.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Gets the current weight of the heuristic.
+     *
+     * @return The weight, from the initial weight down to 1.
+     */
+    public double getWeight() {
+        return (double) weight / WEIGHT_SCALE;
+    }
+
+    /**
+     * Has a cell been expanded in the current round?
+     *
+     * @param id The id of the cell.
+     * @return True if the cell was expanded, false otherwise.
+     */
+    public boolean isExpanded(int id) {
+        return expandedRound[id] == round;
+    }
+
+    /**
+     * Gets the current round of the search. A round starts each time the weight is lowered, and
+     * the cells expanded in the round before are forgotten.
+     *
+     * @return The round, starting from 1.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Gets the number of cells expanded in the current round.
+     *
+     * @return The number of cells, so {@link #getExpandedCell(int)} takes indexes below it.
+     */
+    public int getExpandedCount() {
+        return expanded.size();
+    }
+
+    /**
+     * Gets a cell expanded in the current round. Cells are numbered in the order they were
+     * expanded, so a caller can pick up only the cells expanded since it last looked.
+     *
+     * @param index The index of the cell, below {@link #getExpandedCount()}.
+     * @return The id of the cell.
+     */
+    public int getExpandedCell(int index) {
+        return expanded.get(index);
+    }
+
+    /**
+     * Gets the number of cells expanded so far, over every round.
+     *
+     * @return The number of expansions.
+     */
+    public long getExpansions() {
+        return expansions;
+    }
+}
@@ -0,0 +1,184 @@
+package models.search;
+
+import models.Grid;
+
+/**
+ * A* running from the start and from the goal at the same time, until the two fronts meet.
+ * <p>
+ * Each step expands the front with fewer open cells. When the goal is walled off, the front
+ * around it runs out of cells first, so the search gives up after exploring the small side
+ * instead of the whole area reachable from the start. Long queries expand two smaller fronts
+ * rather than one large one.
+ * <p>
+ * Both fronts use the octile distance, which is consistent, so the search can stop as soon as
+ * the lowest F Score of either front is no better than the cheapest path through a cell where the
+ * fronts met. The path found is optimal. The search from the goal keeps its values in the
+ * context's second context.
+ */
+public class BidirectionalAStarSearch implements Pathfinder {
+    /**
+     * The cost of a path that has not been found.
+     */
+    private static final int NO_PATH = Integer.MAX_VALUE;
+
+    @Override
+    public boolean search(SearchContext context, int start, int goal, boolean checkDiagonals) {
+        SearchContext reverse = context.getReverseContext();
+        int width = context.getGrid().getWidth();
+
+        context.reset();
+        reverse.reset();
+        reverse.clearCounts();
+
+        if (start == goal) {
+            context.pathBuffer(1)[0] = start;
+            context.markOptimal();
+            return true;
+        }
+        if (context.getGrid().isObstacle(goal)) {
+            return false;
+        }
+
+        context.update(start, 0, -1);
+        context.open(start, AStarSearch.findOctileDistance(start, goal, width));
+        reverse.update(goal, 0, -1);
+        reverse.open(goal, AStarSearch.findOctileDistance(goal, start, width));
+
+        OpenList forwardNodes = context.getOpenList();
+        OpenList backwardNodes = reverse.getOpenList();
+        // The cell on the cheapest path found so far where both fronts met, or -1 if they have not.
+        int meeting = -1;
+
+        while (!forwardNodes.isEmpty() && !backwardNodes.isEmpty()) {
+            boolean forward = forwardNodes.size() <= backwardNodes.size();
+            SearchContext side = forward ? context : reverse;
+            SearchContext other = forward ? reverse : context;
+
+            // Every path not found yet runs through an open cell of each front, and costs at least
+            // that cell's F Score, so once a front's lowest F Score reaches the best path, no
+            // cheaper one is left.
+            int target = forward ? goal : start;
+            int lowest = side.getOpenList().peek();
+            if (side.getGScore(lowest) + AStarSearch.findOctileDistance(lowest, target, width)
+                    >= pathCost(context, reverse, meeting)) {
+                break;
+            }
+
+            int current = side.getOpenList().poll();
+            side.markClosed(current);
+            meeting = expand(side, other, current, target, checkDiagonals, meeting);
+        }
+
+        context.addCounts(reverse);
+        if (meeting == -1) {
+            return false;
+        }
+
+        buildPath(context, reverse, meeting);
+        context.markOptimal();
+        return true;
+    }
+
+    /**
+     * Opens the neighbors of a cell in one front, and checks whether the other front has reached
+     * them too.
+     *
+     * @param side           The context of the front being expanded.
+     * @param other          The context of the other front.
+     * @param current        The id of the cell being expanded.
+     * @param target         The id of the cell this front is heading for.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param meeting        The cell on the cheapest path found so far where the fronts met, or -1
+     *                       if they have not met.
+     * @return The cell on the cheapest path found where the fronts met, or -1 if they have not.
+     */
+    private int expand(SearchContext side, SearchContext other, int current, int target,
+                       boolean checkDiagonals, int meeting) {
+        Grid grid = side.getGrid();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int x = current % width;
+        int y = current / width;
+        int gScore = side.getGScore(current);
+        int bestCost = pathCost(side, other, meeting);
+
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                boolean diagonal = dx != 0 && dy != 0;
+                if ((dx == 0 && dy == 0) || (diagonal && !checkDiagonals)) {
+                    continue;
+                }
+
+                int nx = x + dx;
+                int ny = y + dy;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+
+                int neighbor = ny * width + nx;
+                if (side.isClosed(neighbor) || grid.isObstacle(neighbor)) {
+                    continue;
+                }
+
+                int newGScore = gScore + grid.getStepCost(current, neighbor,
+                        diagonal ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+                if (newGScore >= side.getGScore(neighbor)) {
+                    continue;
+                }
+
+                side.update(neighbor, newGScore, current);
+                side.open(neighbor, newGScore + AStarSearch.findOctileDistance(neighbor, target, width));
+
+                // The other front has reached this cell too, so there is a path through it.
+                int otherGScore = other.getGScore(neighbor);
+                if (otherGScore != NO_PATH && newGScore + otherGScore < bestCost) {
+                    bestCost = newGScore + otherGScore;
+                    meeting = neighbor;
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * Gets the cost of the path through the cell where the fronts met. The G Scores of the cell
+     * only drop while the search goes on, and a cheaper path through it is always a real path,
+     * so the cost is worked out from them rather than kept.
+     *
+     * @param side    The context of one front.
+     * @param other   The context of the other front.
+     * @param meeting The cell where the fronts met, or -1 if they have not met.
+     * @return The cost of the path, or {@link #NO_PATH} if the fronts have not met.
+     */
+    private static int pathCost(SearchContext side, SearchContext other, int meeting) {
+        return meeting == -1 ? NO_PATH : side.getGScore(meeting) + other.getGScore(meeting);
+    }
+
+    /**
+     * Builds the path through the cell where the fronts met, and keeps it in the context.
+     *
+     * @param context The context of the front from the start.
+     * @param reverse The context of the front from the goal.
+     * @param meeting The id of the cell where the fronts met.
+     */
+    private void buildPath(SearchContext context, SearchContext reverse, int meeting) {
+        int length = 0;
+        for (int current = meeting; current != -1; current = context.getCameFrom(current)) {
+            length++;
+        }
+        int forwardLength = length;
+        for (int current = reverse.getCameFrom(meeting); current != -1; current = reverse.getCameFrom(current)) {
+            length++;
+        }
+
+        int[] path = context.pathBuffer(length);
+        int index = forwardLength - 1;
+        for (int current = meeting; current != -1; current = context.getCameFrom(current)) {
+            path[index--] = current;
+        }
+        index = forwardLength;
+        for (int current = reverse.getCameFrom(meeting); current != -1; current = reverse.getCameFrom(current)) {
+            path[index++] = current;
+        }
+    }
+}
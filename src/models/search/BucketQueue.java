@@ -0,0 +1,415 @@
+package models.search;
+
+import java.util.Arrays;
+
+/**
+ * A bucket queue (Dial's algorithm) of cell ids, for searches whose keys are small integers. Each
+ * key has its own bucket, a linked list of the cells with that key, so adding a cell or lowering
+ * its key takes O(1) time, and taking the cell with the lowest key takes O(1) amortized time while
+ * keys only rise, as the F Scores of A* with a consistent heuristic do.
+ * <p>
+ * Only the keys between the lowest and the highest key in the queue need a bucket, so the buckets
+ * form a ring that is indexed by the key modulo its size, and the ring grows when the spread of
+ * keys outgrows it. Keys below the lowest key so far are allowed, they only cost a longer scan.
+ * <p>
+ * Of the cells with the same key, the one with the highest G Score comes out first, and of those
+ * with the same G Score too, the one added last. Keeping every bucket in that order would cost a
+ * walk down the bucket for most cells, so only the bucket cells are taken from is kept sorted:
+ * the others are sorted once they become the lowest. A cell added to the sorted bucket by a
+ * search is almost always a child of the cell just taken, with the same key and a higher G Score
+ * than any cell left in it, so it goes straight to the front.
+ */
+public class BucketQueue implements OpenList {
+    /**
+     * The link of a cell that is not in the queue, and of the end of a bucket.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The sorted key when no bucket is sorted, which is below every int key.
+     */
+    private static final long UNSORTED = Long.MIN_VALUE;
+
+    /**
+     * The first cell in every bucket, or {@link #NONE} if it is empty.
+     */
+    private int[] heads;
+
+    /**
+     * The size of the ring of buckets minus 1, as a mask to turn keys into bucket indexes. The
+     * size is always a power of 2.
+     */
+    private int mask;
+
+    /**
+     * The next and previous cell in the bucket of every cell, indexed by cell id.
+     */
+    private final int[] next, previous;
+
+    /**
+     * The key and the G Score of every cell in the queue, indexed by cell id.
+     */
+    private final int[] keys, gScores;
+
+    /**
+     * The key of the bucket sorted by G Score, or {@link #UNSORTED} if there is none. Cells added
+     * to it are put in their place, while cells added to any other bucket go to the front.
+     */
+    private long sortedKey = UNSORTED;
+
+    /**
+     * Is each cell in the queue?
+     */
+    private final boolean[] queued;
+
+    /**
+     * The lowest and the highest key that may have a cell. Every cell's key lies between the two.
+     * Neither is moved as cells are taken, so they may be looser than the keys in the queue: the
+     * lowest key is raised as the next cell is looked for, and both are tightened before the ring
+     * grows.
+     */
+    private int lowestKey, highestKey;
+
+    /**
+     * The number of cells in the queue.
+     */
+    private int size;
+
+    /**
+     * Creates a new bucket queue.
+     *
+     * @param cells The number of cells in the grid, every cell id must be below this.
+     */
+    public BucketQueue(int cells) {
+        heads = new int[256];
+        Arrays.fill(heads, NONE);
+        mask = heads.length - 1;
+        next = new int[cells];
+        previous = new int[cells];
+        keys = new int[cells];
+        gScores = new int[cells];
+        queued = new boolean[cells];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return queued[id];
+    }
+
+    /**
+     * Adds a cell that is not in the queue yet, as if its G Score were 0, so of the cells with
+     * the same key and no G Score the one added last comes out first.
+     *
+     * @param id  The id of the cell.
+     * @param key The key of the cell.
+     */
+    @Override
+    public void push(int id, int key) {
+        push(id, key, 0);
+    }
+
+    @Override
+    public void push(int id, int key, int gScore) {
+        if (size == 0) {
+            lowestKey = key;
+            highestKey = key;
+        } else {
+            include(key);
+        }
+
+        gScores[id] = gScore;
+        insert(id, key);
+        queued[id] = true;
+        size++;
+    }
+
+    /**
+     * Lowers the key of a cell that is already in the queue, as if its G Score were 0.
+     *
+     * @param id  The id of the cell.
+     * @param key The new key of the cell, which must not be greater than its current key.
+     */
+    @Override
+    public void decreaseKey(int id, int key) {
+        decreaseKey(id, key, 0);
+    }
+
+    @Override
+    public void decreaseKey(int id, int key, int gScore) {
+        unlink(id);
+        include(key);
+        gScores[id] = gScore;
+        insert(id, key);
+    }
+
+    @Override
+    public int peek() {
+        return heads[findLowestBucket()];
+    }
+
+    @Override
+    public int poll() {
+        int id = heads[findLowestBucket()];
+        unlink(id);
+        queued[id] = false;
+        size--;
+        return id;
+    }
+
+    @Override
+    public void clear() {
+        sortedKey = UNSORTED;
+        for (int key = lowestKey; size > 0; key++) {
+            int bucket = key & mask;
+            for (int id = heads[bucket]; id != NONE; id = next[id]) {
+                queued[id] = false;
+                size--;
+            }
+            heads[bucket] = NONE;
+        }
+    }
+
+    /**
+     * Moves the lowest key up to the first bucket that holds a cell, and sorts that bucket if it
+     * is not sorted yet. Keys only rise in most searches, so every empty bucket is passed over
+     * once, which is what makes this amortized O(1) besides the sorting.
+     *
+     * @return The index of the bucket with the lowest key.
+     */
+    private int findLowestBucket() {
+        while (heads[lowestKey & mask] == NONE) {
+            lowestKey++;
+        }
+        int bucket = lowestKey & mask;
+        if (sortedKey != lowestKey) {
+            sortedKey = lowestKey;
+            sort(bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * Adds a cell to the bucket of its key: to the front, unless the bucket is the sorted one and
+     * a cell in it has a higher G Score. A cell whose key is below the sorted bucket's goes to an
+     * unsorted bucket that will be taken from first, so the sorted bucket stops being kept sorted
+     * rather than having cells walked into it while it is not the lowest.
+     *
+     * @param id  The id of the cell.
+     * @param key The key of the cell, whose bucket is in the ring.
+     */
+    private void insert(int id, int key) {
+        if (key != sortedKey) {
+            if (key < sortedKey) {
+                sortedKey = UNSORTED;
+            }
+            link(id, key);
+            return;
+        }
+
+        int bucket = key & mask;
+        int gScore = gScores[id];
+        int before = NONE;
+        int after = heads[bucket];
+        while (after != NONE && gScores[after] > gScore) {
+            before = after;
+            after = next[after];
+        }
+        if (before == NONE) {
+            link(id, key);
+            return;
+        }
+
+        keys[id] = key;
+        previous[id] = before;
+        next[id] = after;
+        next[before] = id;
+        if (after != NONE) {
+            previous[after] = id;
+        }
+    }
+
+    /**
+     * Sorts a bucket from the highest G Score to the lowest, keeping the order of cells with the
+     * same G Score.
+     *
+     * @param bucket The index of the bucket, which holds at least one cell.
+     */
+    private void sort(int bucket) {
+        int count = 0;
+        for (int id = heads[bucket]; id != NONE; id = next[id]) {
+            count++;
+        }
+        if (count == 1) {
+            return;
+        }
+
+        int head = sortRun(heads[bucket], count);
+        heads[bucket] = head;
+        int before = NONE;
+        for (int id = head; id != NONE; id = next[id]) {
+            previous[id] = before;
+            before = id;
+        }
+    }
+
+    /**
+     * Merge sorts the cells of a run of a bucket, following only their next links.
+     *
+     * @param first The first cell of the run.
+     * @param count The number of cells in the run, at least 1.
+     * @return The first cell of the sorted run, whose last cell links to {@link #NONE}.
+     */
+    private int sortRun(int first, int count) {
+        if (count == 1) {
+            next[first] = NONE;
+            return first;
+        }
+
+        int half = count / 2;
+        int second = first;
+        for (int i = 0; i < half; i++) {
+            second = next[second];
+        }
+        int left = sortRun(first, half);
+        int right = sortRun(second, count - half);
+
+        // Cells from the left run go first on ties, which keeps the sort stable.
+        int head = NONE;
+        int tail = NONE;
+        while (left != NONE || right != NONE) {
+            int id;
+            if (right == NONE || (left != NONE && gScores[left] >= gScores[right])) {
+                id = left;
+                left = next[left];
+            } else {
+                id = right;
+                right = next[right];
+            }
+            if (tail == NONE) {
+                head = id;
+            } else {
+                next[tail] = id;
+            }
+            tail = id;
+        }
+        return head;
+    }
+
+    /**
+     * Adds a cell to the front of the bucket of a key.
+     *
+     * @param id  The id of the cell.
+     * @param key The key of the cell.
+     */
+    private void link(int id, int key) {
+        int bucket = key & mask;
+        int head = heads[bucket];
+        keys[id] = key;
+        next[id] = head;
+        previous[id] = NONE;
+        if (head != NONE) {
+            previous[head] = id;
+        }
+        heads[bucket] = id;
+    }
+
+    /**
+     * Takes a cell out of its bucket.
+     *
+     * @param id The id of the cell.
+     */
+    private void unlink(int id) {
+        int before = previous[id];
+        int after = next[id];
+        if (before == NONE) {
+            heads[keys[id] & mask] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    /**
+     * Widens the range of keys to take in a key, growing the ring if the range no longer fits.
+     * Before growing, the range is shrunk to the keys still in the queue, since taking cells does
+     * not shrink it, and a range left wide by cells taken long ago would grow the ring for
+     * nothing.
+     *
+     * @param key The key of a cell about to be added.
+     */
+    private void include(int key) {
+        if (key >= lowestKey && key <= highestKey) {
+            return;
+        }
+
+        if ((long) Math.max(highestKey, key) - Math.min(lowestKey, key) + 1 > heads.length) {
+            // Empty buckets at either end are passed over once, which growing would cost anyway.
+            while (lowestKey < highestKey && heads[lowestKey & mask] == NONE) {
+                lowestKey++;
+            }
+            while (highestKey > lowestKey && heads[highestKey & mask] == NONE) {
+                highestKey--;
+            }
+            if (heads[lowestKey & mask] == NONE) {
+                // Every bucket is empty, as when the only cell is having its key lowered.
+                lowestKey = key;
+                highestKey = key;
+            }
+        }
+
+        int lowest = Math.min(lowestKey, key);
+        int highest = Math.max(highestKey, key);
+        fit(lowest, highest);
+        lowestKey = lowest;
+        highestKey = highest;
+    }
+
+    /**
+     * Grows the ring of buckets if it can not give every key from the lowest to the highest a
+     * bucket of its own, moving every cell into its bucket in the new ring.
+     *
+     * @param lowest  The lowest key the ring must hold.
+     * @param highest The highest key the ring must hold.
+     */
+    private void fit(int lowest, int highest) {
+        long spread = (long) highest - lowest + 1;
+        if (spread <= heads.length) {
+            return;
+        }
+
+        int[] oldHeads = heads;
+        int capacity = heads.length;
+        while (capacity < spread) {
+            capacity *= 2;
+        }
+        heads = new int[capacity];
+        Arrays.fill(heads, NONE);
+        mask = capacity - 1;
+
+        // The cells are moved bucket by bucket from the back, so the order within each bucket
+        // stays the same.
+        for (int oldHead : oldHeads) {
+            int last = oldHead;
+            while (last != NONE && next[last] != NONE) {
+                last = next[last];
+            }
+            for (int id = last; id != NONE; ) {
+                int before = previous[id];
+                link(id, keys[id]);
+                id = before;
+            }
+        }
+    }
+}
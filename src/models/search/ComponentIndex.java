@@ -0,0 +1,538 @@
+package models.search;
+
+import models.Grid;
+import models.GridListener;
+
+import java.util.Arrays;
+
+/**
+ * Labels every open cell of a grid with the connected component it belongs to, so a query whose
+ * start and goal lie in different components can be turned down without searching.
+ * <p>
+ * The labels are kept up to date as the grid changes, without labelling the whole grid again:
+ * <ul>
+ * <li>Opening a cell joins the components around it, by relabelling the smaller ones into the
+ * largest.</li>
+ * <li>Blocking a cell can only split its component if the open cells around it are not already
+ * connected to each other right around it. If they are not, a search runs from each separate
+ * group of neighbors in turn, one cell at a time, until all but one of them have met or run out
+ * of cells. A group that runs out of cells is a new component, so only the cells cut off are
+ * relabelled.</li>
+ * </ul>
+ * An index is not thread safe. Like the grid, it should only be changed while no search reads it.
+ */
+public class ComponentIndex implements GridListener, AutoCloseable {
+    /**
+     * The steps to the neighbors of a cell, straight ones first.
+     */
+    private static final int[] DX = {-1, 0, 1, 0, -1, 1, 1, -1};
+    private static final int[] DY = {0, -1, 0, 1, -1, -1, 1, 1};
+
+    /**
+     * The eight cells around a cell, in order around the ring.
+     */
+    private static final int[] RING_X = {-1, 0, 1, 1, 1, 0, -1, -1};
+    private static final int[] RING_Y = {-1, -1, -1, 0, 1, 1, 1, 0};
+
+    /**
+     * The label of a cell that is an obstacle.
+     */
+    private static final int NO_COMPONENT = -1;
+
+    /**
+     * The grid being labelled.
+     */
+    private final Grid grid;
+
+    /**
+     * Are cells diagonal to each other connected? This also decides which queries the index can
+     * turn down, see {@link #isReachable(int, int, boolean)}.
+     */
+    private final boolean checkDiagonals;
+
+    /**
+     * The number of neighbors of a cell, 8 with diagonal steps and 4 without.
+     */
+    private final int directions;
+
+    /**
+     * The component of every cell.
+     */
+    private final int[] labels;
+
+    /**
+     * The number of cells in each component, and the labels no component uses right now.
+     */
+    private int[] sizes;
+    private int labelCount;
+    private final IntList freeLabels;
+
+    /**
+     * The marks left by the searches that look for a split. A cell was reached by group i of the
+     * current split if its stamp is the stamp base plus i. The base goes up by 8 for each split,
+     * so old marks never have to be cleared.
+     */
+    private final int[] stamps;
+    private int stampBase;
+
+    /**
+     * The cells reached by each group while looking for a split, which double as their queues,
+     * with the index of the next cell to expand.
+     */
+    private final IntList[] fronts;
+    private final int[] heads;
+
+    /**
+     * The group each group has been merged into after meeting it, and whether each group is
+     * finished, having either run out of cells or been split off.
+     */
+    private final int[] parents;
+    private final boolean[] finished;
+
+    /**
+     * The queue used while labelling.
+     */
+    private final IntList queue;
+
+    /**
+     * Labels every cell of the grid and starts listening to it.
+     *
+     * @param grid           The grid to label.
+     * @param checkDiagonals True if cells diagonal to each other are connected, false otherwise.
+     */
+    public ComponentIndex(Grid grid, boolean checkDiagonals) {
+        int cells = grid.getWidth() * grid.getHeight();
+        this.grid = grid;
+        this.checkDiagonals = checkDiagonals;
+        directions = checkDiagonals ? 8 : 4;
+        labels = new int[cells];
+        sizes = new int[16];
+        freeLabels = new IntList(16);
+        stamps = new int[cells];
+        stampBase = 8;
+        fronts = new IntList[4];
+        for (int i = 0; i < fronts.length; i++) {
+            fronts[i] = new IntList(64);
+        }
+        heads = new int[4];
+        parents = new int[4];
+        finished = new boolean[4];
+        queue = new IntList(64);
+
+        // Flood every open cell that has no label yet with a new one.
+        Arrays.fill(labels, NO_COMPONENT);
+        for (int id = 0; id < cells; id++) {
+            if (labels[id] == NO_COMPONENT && !grid.isObstacle(id)) {
+                int label = newLabel();
+                labels[id] = label;
+                sizes[label] = 1 + flood(id, NO_COMPONENT, label);
+            }
+        }
+
+        grid.addGridListener(this);
+    }
+
+    @Override
+    public void cellChanged(Grid grid, int id) {
+        if (grid.isObstacle(id)) {
+            if (labels[id] != NO_COMPONENT) {
+                block(id);
+            }
+        } else if (labels[id] == NO_COMPONENT) {
+            open(id);
+        }
+    }
+
+    /**
+     * Can a search find a path from the start to the goal? Components found with diagonal steps
+     * are never split further without them, so an index built with diagonals can turn down
+     * queries either way, while one built without them can only turn down queries without them.
+     *
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if the search allows diagonal steps, false otherwise.
+     * @return False if there is certainly no path, true if there might be one.
+     */
+    public boolean isReachable(int start, int goal, boolean checkDiagonals) {
+        if (start == goal) {
+            return true;
+        }
+        if (labels[goal] == NO_COMPONENT) {
+            // A search never steps onto an obstacle.
+            return false;
+        }
+        if (labels[start] == NO_COMPONENT || (checkDiagonals && !this.checkDiagonals)) {
+            // A search may step off an obstacle it starts on, and the index can not tell where to.
+            return true;
+        }
+        return labels[start] == labels[goal];
+    }
+
+    /**
+     * Are two cells in the same component?
+     *
+     * @param a The id of the first cell.
+     * @param b The id of the second cell.
+     * @return True if both cells are open and connected, false otherwise.
+     */
+    public boolean isConnected(int a, int b) {
+        return labels[a] != NO_COMPONENT && labels[a] == labels[b];
+    }
+
+    /**
+     * Gets the component a cell belongs to. Labels are only stable until the grid changes.
+     *
+     * @param id The id of the cell.
+     * @return The label of the cell's component, or -1 if the cell is an obstacle.
+     */
+    public int getComponent(int id) {
+        return labels[id];
+    }
+
+    /**
+     * Gets the number of cells in the component a cell belongs to.
+     *
+     * @param id The id of the cell.
+     * @return The size of the cell's component, or 0 if the cell is an obstacle.
+     */
+    public int getComponentSize(int id) {
+        return labels[id] == NO_COMPONENT ? 0 : sizes[labels[id]];
+    }
+
+    /**
+     * Gets the number of components on the grid.
+     *
+     * @return The number of components.
+     */
+    public int getComponentCount() {
+        return labelCount - freeLabels.size();
+    }
+
+    /**
+     * Gets the grid being labelled.
+     *
+     * @return The grid.
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Stops listening to the grid. The labels are not kept up to date after this.
+     */
+    @Override
+    public void close() {
+        grid.removeGridListener(this);
+    }
+
+    /**
+     * Labels a cell that was just opened, joining every component around it.
+     *
+     * @param id The id of the cell.
+     */
+    private void open(int id) {
+        int width = grid.getWidth();
+        int x = id % width;
+        int y = id / width;
+
+        // Join the neighbors' components into the largest of them, so as few cells as possible
+        // are relabelled.
+        int largest = NO_COMPONENT;
+        for (int d = 0; d < directions; d++) {
+            int neighbor = neighbor(x + DX[d], y + DY[d]);
+            if (neighbor != -1 && labels[neighbor] != NO_COMPONENT
+                    && (largest == NO_COMPONENT || sizes[labels[neighbor]] > sizes[largest])) {
+                largest = labels[neighbor];
+            }
+        }
+
+        if (largest == NO_COMPONENT) {
+            largest = newLabel();
+        }
+        labels[id] = largest;
+        sizes[largest]++;
+
+        for (int d = 0; d < directions; d++) {
+            int neighbor = neighbor(x + DX[d], y + DY[d]);
+            if (neighbor == -1 || labels[neighbor] == NO_COMPONENT || labels[neighbor] == largest) {
+                continue;
+            }
+
+            int label = labels[neighbor];
+            labels[neighbor] = largest;
+            flood(neighbor, label, largest);
+            sizes[largest] += sizes[label];
+            freeLabel(label);
+        }
+    }
+
+    /**
+     * Removes a cell that was just blocked from its component, and splits the component if the
+     * cell was the only thing holding it together.
+     *
+     * @param id The id of the cell.
+     */
+    private void block(int id) {
+        int label = labels[id];
+        labels[id] = NO_COMPONENT;
+        sizes[label]--;
+
+        int groups = findNeighborGroups(id);
+        if (sizes[label] == 0) {
+            freeLabel(label);
+        } else if (groups > 1) {
+            split(label, groups);
+        }
+    }
+
+    /**
+     * Finds the groups of neighbors of a cell that are connected to each other through the ring
+     * of cells around it, and starts a front at one neighbor of each group.
+     *
+     * @param id The id of the cell.
+     * @return The number of groups found.
+     */
+    private int findNeighborGroups(int id) {
+        int width = grid.getWidth();
+        int x = id % width;
+        int y = id / width;
+
+        // Join the open cells of the ring that are next to each other. Without diagonal steps,
+        // the corners still join the straight neighbors on either side of them.
+        int[] ring = new int[8];
+        int[] ringGroups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            int cell = neighbor(x + RING_X[i], y + RING_Y[i]);
+            ring[i] = cell != -1 && labels[cell] != NO_COMPONENT ? cell : -1;
+            ringGroups[i] = i;
+        }
+        for (int i = 0; i < 8; i++) {
+            for (int j = i + 1; j < 8; j++) {
+                if (ring[i] != -1 && ring[j] != -1 && isAdjacent(RING_X[i] - RING_X[j], RING_Y[i] - RING_Y[j])) {
+                    int from = ringGroups[j];
+                    int to = ringGroups[i];
+                    for (int k = 0; k < 8; k++) {
+                        if (ringGroups[k] == from) {
+                            ringGroups[k] = to;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Only the ring cells the blocked cell could step to were connected through it.
+        int groups = 0;
+        boolean[] seen = new boolean[8];
+        for (int i = 0; i < 8; i++) {
+            boolean straight = RING_X[i] == 0 || RING_Y[i] == 0;
+            if (ring[i] != -1 && (straight || checkDiagonals) && !seen[ringGroups[i]]) {
+                seen[ringGroups[i]] = true;
+                fronts[groups].clear();
+                fronts[groups].add(ring[i]);
+                groups++;
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Searches from each group of neighbors in turn until all but one group have met each other
+     * or run out of cells, and gives every group that ran out of cells a new label.
+     *
+     * @param label  The label of the component that may have split.
+     * @param groups The number of groups, whose fronts hold one starting cell each.
+     */
+    private void split(int label, int groups) {
+        stampBase += 8;
+        if (stampBase < 0) {
+            // The base has wrapped around, so old marks could look current again.
+            Arrays.fill(stamps, 0);
+            stampBase = 8;
+        }
+
+        for (int i = 0; i < groups; i++) {
+            stamps[fronts[i].get(0)] = stampBase + i;
+            heads[i] = 0;
+            parents[i] = i;
+            finished[i] = false;
+        }
+
+        int width = grid.getWidth();
+        int remaining = groups;
+        while (remaining > 1) {
+            for (int i = 0; i < groups && remaining > 1; i++) {
+                int root = findRoot(i);
+                if (finished[root]) {
+                    continue;
+                }
+
+                if (heads[i] < fronts[i].size()) {
+                    int current = fronts[i].get(heads[i]++);
+                    int x = current % width;
+                    int y = current / width;
+                    for (int d = 0; d < directions; d++) {
+                        int neighbor = neighbor(x + DX[d], y + DY[d]);
+                        if (neighbor == -1 || labels[neighbor] == NO_COMPONENT) {
+                            continue;
+                        }
+
+                        if (stamps[neighbor] < stampBase) {
+                            stamps[neighbor] = stampBase + i;
+                            fronts[i].add(neighbor);
+                        } else {
+                            // Another group reached this cell first, so the two are connected.
+                            int other = findRoot(stamps[neighbor] - stampBase);
+                            if (other != root) {
+                                parents[other] = root;
+                                remaining--;
+                            }
+                        }
+                    }
+                }
+
+                if (isExhausted(root, groups) && remaining > 1) {
+                    // Every cell this group can reach has been seen, so it has been cut off.
+                    relabel(root, groups, label);
+                    finished[root] = true;
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Has every front merged into a group run out of cells to expand?
+     *
+     * @param root   The group.
+     * @param groups The number of groups.
+     * @return True if the group has no cells left to expand, false otherwise.
+     */
+    private boolean isExhausted(int root, int groups) {
+        for (int i = 0; i < groups; i++) {
+            if (findRoot(i) == root && heads[i] < fronts[i].size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives every cell reached by a group a new label.
+     *
+     * @param root     The group.
+     * @param groups   The number of groups.
+     * @param oldLabel The label the cells had.
+     */
+    private void relabel(int root, int groups, int oldLabel) {
+        int label = newLabel();
+        int count = 0;
+        for (int i = 0; i < groups; i++) {
+            if (findRoot(i) == root) {
+                IntList front = fronts[i];
+                for (int j = 0; j < front.size(); j++) {
+                    labels[front.get(j)] = label;
+                }
+                count += front.size();
+            }
+        }
+        sizes[label] = count;
+        sizes[oldLabel] -= count;
+    }
+
+    /**
+     * Finds the group a group has been merged into.
+     *
+     * @param group The group.
+     * @return The group it has been merged into, which may be itself.
+     */
+    private int findRoot(int group) {
+        while (parents[group] != group) {
+            group = parents[group];
+        }
+        return group;
+    }
+
+    /**
+     * Relabels every cell connected to a cell that still has the old label.
+     *
+     * @param from     The id of the cell to start from, which already has the new label.
+     * @param oldLabel The label to replace.
+     * @param newLabel The label to replace it with.
+     * @return The number of cells relabelled, not counting the cell started from.
+     */
+    private int flood(int from, int oldLabel, int newLabel) {
+        int width = grid.getWidth();
+        int count = 0;
+        queue.clear();
+        queue.add(from);
+        while (queue.size() > 0) {
+            int current = queue.removeLast();
+            int x = current % width;
+            int y = current / width;
+            for (int d = 0; d < directions; d++) {
+                int neighbor = neighbor(x + DX[d], y + DY[d]);
+                // While building, obstacles and unlabelled cells both have no label, so the
+                // obstacle check keeps the flood out of obstacles.
+                if (neighbor != -1 && labels[neighbor] == oldLabel && !grid.isObstacle(neighbor)) {
+                    labels[neighbor] = newLabel;
+                    queue.add(neighbor);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the id of the cell at the given coordinates.
+     *
+     * @param x The X coordinate of the cell.
+     * @param y The Y coordinate of the cell.
+     * @return The id of the cell, or -1 if it is outside the grid.
+     */
+    private int neighbor(int x, int y) {
+        if (x < 0 || x >= grid.getWidth() || y < 0 || y >= grid.getHeight()) {
+            return -1;
+        }
+        return grid.cellId(x, y);
+    }
+
+    /**
+     * Can a single step cover the given offset?
+     *
+     * @param dx The X offset.
+     * @param dy The Y offset.
+     * @return True if the offset is one step, false otherwise.
+     */
+    private boolean isAdjacent(int dx, int dy) {
+        int xDiff = Math.abs(dx);
+        int yDiff = Math.abs(dy);
+        return checkDiagonals ? Math.max(xDiff, yDiff) == 1 : xDiff + yDiff == 1;
+    }
+
+    /**
+     * Gets a label no component uses.
+     *
+     * @return The label.
+     */
+    private int newLabel() {
+        if (freeLabels.size() > 0) {
+            return freeLabels.removeLast();
+        }
+
+        if (labelCount == sizes.length) {
+            sizes = Arrays.copyOf(sizes, labelCount * 2);
+        }
+        return labelCount++;
+    }
+
+    /**
+     * Marks a label as unused, so it can be given to a new component.
+     *
+     * @param label The label.
+     */
+    private void freeLabel(int label) {
+        sizes[label] = 0;
+        freeLabels.add(label);
+    }
+}
@@ -0,0 +1,555 @@
+package models.search;
+
+import models.Grid;
+import models.GridListener;
+
+import java.util.Arrays;
+
+/**
+ * Moves many agents at once without collisions, with Windowed Hierarchical Cooperative A*
+ * (WHCA*).
+ * <p>
+ * Agents plan one after another in space and time. Each one searches for the best way to spend the
+ * next few time steps, the window, moving to a neighbor or waiting each step, around the cells
+ * and steps held by the agents that planned before it in a {@link ReservationTable}, and then
+ * reserves its own plan. Beyond the window the remaining cost is the true distance to the goal
+ * ignoring the other agents, worked out on demand by a search backwards from the goal that is
+ * paused and resumed as cells are asked for, and shared by the agents heading to the same goal.
+ * Agents only follow the first steps of their plans before every agent plans again, with the
+ * first agent to plan taking turns, so no agent is stuck behind the others for good.
+ * <p>
+ * An agent that can not reach its goal, or finds no way through the agents planned before it,
+ * holds its cell for the whole window. It has to reserve its cell before the others plan, or
+ * they could plan through it, so the agents that can not reach their goals hold their cells
+ * first, and a round of planning starts over whenever an agent finds no way through.
+ * <p>
+ * Memory does not grow with time: the reservations only cover one window and are cleared before
+ * each round of planning, the search only keeps the cells within a window's reach of the agent,
+ * and the backwards searches only keep the cells they reached, for the goals in use.
+ * <p>
+ * A planner is not thread safe, and should only be used from the thread changing the grid.
+ */
+public class CooperativePlanner implements GridListener, AutoCloseable {
+    /**
+     * The grid being planned on.
+     */
+    private final Grid grid;
+
+    /**
+     * Are diagonal steps allowed?
+     */
+    private final boolean checkDiagonals;
+
+    /**
+     * The number of time steps each plan looks ahead, and the number of steps followed before
+     * planning again.
+     */
+    private final int window, replanInterval;
+
+    /**
+     * The cells held by the agents over the current window.
+     */
+    private final ReservationTable reservations;
+
+    /**
+     * The cell, goal and plan of every agent. A plan holds the agent's cell at every time step of
+     * the window, starting at {@link #planTime}.
+     */
+    private int[] positions, goals;
+    private int[][] plans;
+    private int agentCount;
+
+    /**
+     * The round of planning in which each agent last held its cell for the whole window, instead
+     * of following a plan of its own.
+     */
+    private int[] heldRounds;
+
+    /**
+     * The current time step, the time step of the last round of planning, and the number of
+     * rounds so far.
+     */
+    private int time, planTime, rounds;
+
+    /**
+     * Do the agents have to plan again before the next step, because agents, goals or the grid
+     * changed?
+     */
+    private boolean replanNeeded;
+
+    /**
+     * The backwards searches giving the distances to each goal in use, their goals, and the last
+     * round of planning an agent headed to each goal. The index of the search of each goal is
+     * kept in a map by goal.
+     */
+    private ReverseResumableSearch[] searches;
+    private int[] searchGoals, searchRounds;
+    private int searchCount;
+    private final LongIntMap searchIndexes;
+
+    /**
+     * The width of the square of cells a search can reach, and the number of cells in it.
+     */
+    private final int side, layer;
+
+    /**
+     * The G Score and parent of every state of a search, by time step and then by cell in the
+     * square around the agent, and the search each one was last set by.
+     */
+    private final int[] gScores, parents, stamps;
+    private int stamp;
+
+    /**
+     * The states waiting to be expanded, ordered by their F Score.
+     */
+    private final IndexedBinaryHeap open;
+
+    /**
+     * The number of states expanded by all plans so far, and the number of plans that found no
+     * way through and made the agent hold its cell.
+     */
+    private long expansions, failedPlans;
+
+    /**
+     * Creates a new planner without agents and starts listening to the grid.
+     *
+     * @param grid           The grid to plan on.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param window         The number of time steps each plan looks ahead. Longer windows avoid
+     *                       more collisions further ahead, but searches take longer.
+     * @param replanInterval The number of steps the agents follow their plans before planning
+     *                       again, from 1 to the window.
+     */
+    public CooperativePlanner(Grid grid, boolean checkDiagonals, int window, int replanInterval) {
+        if (window < 1 || replanInterval < 1 || replanInterval > window) {
+            throw new IllegalArgumentException("Can not plan " + window + " steps ahead and plan again every "
+                    + replanInterval + " steps.");
+        }
+
+        this.grid = grid;
+        this.checkDiagonals = checkDiagonals;
+        this.window = window;
+        this.replanInterval = replanInterval;
+        reservations = new ReservationTable(1024);
+        positions = new int[16];
+        goals = new int[16];
+        plans = new int[16][];
+        heldRounds = new int[16];
+        searches = new ReverseResumableSearch[16];
+        searchGoals = new int[16];
+        searchRounds = new int[16];
+        searchIndexes = new LongIntMap(16);
+        replanNeeded = true;
+
+        side = 2 * window + 1;
+        layer = side * side;
+        int states = layer * (window + 1);
+        gScores = new int[states];
+        parents = new int[states];
+        stamps = new int[states];
+        open = new IndexedBinaryHeap(states);
+
+        grid.addGridListener(this);
+    }
+
+    /**
+     * Adds an agent. It plans along with the others before the next step.
+     *
+     * @param start The id of the cell the agent is at.
+     * @param goal  The id of the cell the agent wants to reach.
+     * @return The id of the agent.
+     */
+    public int addAgent(int start, int goal) {
+        if (agentCount == positions.length) {
+            positions = Arrays.copyOf(positions, agentCount * 2);
+            goals = Arrays.copyOf(goals, agentCount * 2);
+            plans = Arrays.copyOf(plans, agentCount * 2);
+            heldRounds = Arrays.copyOf(heldRounds, agentCount * 2);
+        }
+
+        positions[agentCount] = start;
+        goals[agentCount] = goal;
+        replanNeeded = true;
+        return agentCount++;
+    }
+
+    /**
+     * Sends an agent to a new goal. Every agent plans again before the next step.
+     *
+     * @param agent The id of the agent.
+     * @param goal  The id of the cell the agent wants to reach.
+     */
+    public void setGoal(int agent, int goal) {
+        goals[agent] = goal;
+        replanNeeded = true;
+    }
+
+    @Override
+    public void cellChanged(Grid grid, int id) {
+        Arrays.fill(searches, 0, searchCount, null);
+        searchCount = 0;
+        searchIndexes.clear();
+        replanNeeded = true;
+    }
+
+    /**
+     * Moves every agent one step along its plan, planning again first if the agents followed
+     * their plans for long enough or anything changed.
+     */
+    public void step() {
+        if (replanNeeded || time - planTime >= replanInterval) {
+            planAll();
+        }
+
+        int offset = time + 1 - planTime;
+        for (int agent = 0; agent < agentCount; agent++) {
+            positions[agent] = plans[agent][offset];
+        }
+        time++;
+    }
+
+    /**
+     * Plans every agent over the next window, clearing the old reservations first.
+     */
+    private void planAll() {
+        int round = rounds + 1;
+        dropUnusedSearches(round);
+
+        // Agents that can not reach their goals hold their cells from the start, so nobody plans
+        // through them.
+        for (int agent = 0; agent < agentCount; agent++) {
+            int start = positions[agent];
+            if (!grid.isObstacle(start) && searchOf(agent).distance(start) == DistanceField.UNREACHABLE) {
+                heldRounds[agent] = round;
+                failedPlans++;
+            }
+        }
+
+        // Every failure adds an agent that holds its cell, so this ends after at most one try per
+        // agent.
+        while (!planRound(round)) {
+            failedPlans++;
+        }
+
+        planTime = time;
+        rounds++;
+        replanNeeded = false;
+    }
+
+    /**
+     * Tries to plan every agent around the agents holding their cells this round.
+     *
+     * @param round The round of planning.
+     * @return True if every agent was planned, false if an agent found no way through and now
+     *         holds its cell, so the round has to start over.
+     */
+    private boolean planRound(int round) {
+        reservations.clear();
+        // Every agent holds its cell for the first step, so no agent plans to step into a cell
+        // an agent planning after it can not get out of in time.
+        for (int agent = 0; agent < agentCount; agent++) {
+            reservations.reserve(positions[agent], time, agent);
+            reservations.reserve(positions[agent], time + 1, agent);
+        }
+        for (int agent = 0; agent < agentCount; agent++) {
+            if (heldRounds[agent] == round) {
+                hold(agent);
+                reserve(agent);
+            }
+        }
+
+        for (int i = 0; i < agentCount; i++) {
+            int agent = (rounds + i) % agentCount;
+            if (heldRounds[agent] == round) {
+                continue;
+            }
+            if (!plan(agent)) {
+                heldRounds[agent] = round;
+                return false;
+            }
+            reserve(agent);
+        }
+        return true;
+    }
+
+    /**
+     * Reserves every cell of an agent's plan. The plan only uses cells nobody else holds.
+     *
+     * @param agent The id of the agent.
+     */
+    private void reserve(int agent) {
+        for (int t = 0; t <= window; t++) {
+            reservations.reserve(plans[agent][t], time + t, agent);
+        }
+    }
+
+    /**
+     * Drops the backwards searches of the goals no agent heads to any more.
+     *
+     * @param round The round of planning, marking the searches still in use.
+     */
+    private void dropUnusedSearches(int round) {
+        for (int agent = 0; agent < agentCount; agent++) {
+            int index = searchIndexes.get(goals[agent], -1);
+            if (index != -1) {
+                searchRounds[index] = round;
+            }
+        }
+
+        int kept = 0;
+        searchIndexes.clear();
+        for (int index = 0; index < searchCount; index++) {
+            if (searchRounds[index] == round) {
+                searches[kept] = searches[index];
+                searchGoals[kept] = searchGoals[index];
+                searchRounds[kept] = round;
+                searchIndexes.put(searchGoals[kept], kept);
+                kept++;
+            }
+        }
+        Arrays.fill(searches, kept, searchCount, null);
+        searchCount = kept;
+    }
+
+    /**
+     * Gets the backwards search from an agent's goal, starting one the first time the goal is
+     * asked for.
+     *
+     * @param agent The id of the agent.
+     * @return The search.
+     */
+    private ReverseResumableSearch searchOf(int agent) {
+        int goal = goals[agent];
+        int index = searchIndexes.get(goal, -1);
+        if (index != -1) {
+            return searches[index];
+        }
+
+        if (searchCount == searches.length) {
+            searches = Arrays.copyOf(searches, searchCount * 2);
+            searchGoals = Arrays.copyOf(searchGoals, searchCount * 2);
+            searchRounds = Arrays.copyOf(searchRounds, searchCount * 2);
+        }
+        index = searchCount++;
+        searches[index] = new ReverseResumableSearch(grid, goal, positions[agent], checkDiagonals);
+        searchGoals[index] = goal;
+        searchRounds[index] = rounds + 1;
+        searchIndexes.put(goal, index);
+        return searches[index];
+    }
+
+    /**
+     * Searches for the best plan of an agent around the reservations of the agents planned so
+     * far.
+     *
+     * @param agent The id of the agent.
+     * @return True if a plan was found, false if the agent has no way through.
+     */
+    private boolean plan(int agent) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int start = positions[agent];
+        int goal = goals[agent];
+        ReverseResumableSearch distances = searchOf(agent);
+
+        // States are numbered by time step and by cell in the square around the start.
+        int left = start % width - window;
+        int top = start / width - window;
+        stamp++;
+        open.clear();
+        int first = (start / width - top) * side + (start % width - left);
+        set(first, 0, -1);
+        open.insert(first, Math.max(0, distances.distance(start)));
+
+        while (!open.isEmpty()) {
+            int state = open.poll();
+            int step = state / layer;
+            int x = left + state % layer % side;
+            int y = top + state % layer / side;
+            int cell = y * width + x;
+            if (step == window) {
+                buildPlan(agent, state, left, top);
+                return true;
+            }
+            expansions++;
+
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if ((!checkDiagonals && dx != 0 && dy != 0) || nx < 0 || nx >= width || ny < 0
+                            || ny >= height) {
+                        continue;
+                    }
+
+                    int neighbor = ny * width + nx;
+                    if (grid.isObstacle(neighbor) || !reservations.canMove(cell, neighbor, time + step, agent)) {
+                        continue;
+                    }
+                    int estimate = distances.distance(neighbor);
+                    if (estimate == DistanceField.UNREACHABLE) {
+                        continue;
+                    }
+
+                    // Waiting costs as much as a straight step, unless the agent is done.
+                    int cost;
+                    if (neighbor == cell) {
+                        cost = cell == goal ? 0 : AStarSearch.STRAIGHT_COST;
+                    } else {
+                        cost = grid.getStepCost(cell, neighbor,
+                                dx != 0 && dy != 0 ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+                    }
+
+                    int next = (step + 1) * layer + (ny - top) * side + (nx - left);
+                    int gScore = gScores[state] + cost;
+                    if (stamps[next] != stamp) {
+                        set(next, gScore, state);
+                        open.insert(next, gScore + estimate);
+                    } else if (gScore < gScores[next] && open.contains(next)) {
+                        set(next, gScore, state);
+                        open.update(next, gScore + estimate);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the G Score and parent of a state in the current search.
+     *
+     * @param state  The state.
+     * @param gScore The G Score.
+     * @param parent The state it was reached from, or -1 for the first state.
+     */
+    private void set(int state, int gScore, int parent) {
+        gScores[state] = gScore;
+        parents[state] = parent;
+        stamps[state] = stamp;
+    }
+
+    /**
+     * Turns the last state of a search into the agent's plan.
+     *
+     * @param agent The id of the agent.
+     * @param state The state at the end of the window.
+     * @param left  The X coordinate of the left of the square around the start.
+     * @param top   The Y coordinate of the top of the square around the start.
+     */
+    private void buildPlan(int agent, int state, int left, int top) {
+        int[] plan = planOf(agent);
+        for (int t = window; t >= 0; t--, state = parents[state]) {
+            int local = state % layer;
+            plan[t] = grid.cellId(left + local % side, top + local / side);
+        }
+    }
+
+    /**
+     * Makes an agent hold its cell for the whole window.
+     *
+     * @param agent The id of the agent.
+     */
+    private void hold(int agent) {
+        Arrays.fill(planOf(agent), positions[agent]);
+    }
+
+    /**
+     * Gets the array holding an agent's plan, creating it the first time.
+     *
+     * @param agent The id of the agent.
+     * @return The plan.
+     */
+    private int[] planOf(int agent) {
+        if (plans[agent] == null) {
+            plans[agent] = new int[window + 1];
+        }
+        return plans[agent];
+    }
+
+    /**
+     * Gets the cell an agent is at.
+     *
+     * @param agent The id of the agent.
+     * @return The id of the cell.
+     */
+    public int getPosition(int agent) {
+        return positions[agent];
+    }
+
+    /**
+     * Gets the goal of an agent.
+     *
+     * @param agent The id of the agent.
+     * @return The id of the goal cell.
+     */
+    public int getGoal(int agent) {
+        return goals[agent];
+    }
+
+    /**
+     * Gets the rest of an agent's current plan.
+     *
+     * @param agent The id of the agent.
+     * @return The cell the agent is at and the cells it plans to be at in the following steps, or
+     *         only its cell if it has not planned since anything changed.
+     */
+    public int[] getPlan(int agent) {
+        if (replanNeeded || plans[agent] == null) {
+            return new int[]{positions[agent]};
+        }
+        return Arrays.copyOfRange(plans[agent], time - planTime, window + 1);
+    }
+
+    /**
+     * Gets the number of agents.
+     *
+     * @return The number of agents.
+     */
+    public int getAgentCount() {
+        return agentCount;
+    }
+
+    /**
+     * Gets the number of steps taken so far.
+     *
+     * @return The current time step.
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the number of states expanded by all plans so far.
+     *
+     * @return The number of expanded states.
+     */
+    public long getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Gets the number of plans that found no way through, after which the agent held its cell.
+     *
+     * @return The number of failed plans.
+     */
+    public long getFailedPlans() {
+        return failedPlans;
+    }
+
+    /**
+     * Gets the number of reservations held, as a measure of the memory used.
+     *
+     * @return The number of reservations.
+     */
+    public int getReservationCount() {
+        return reservations.size();
+    }
+
+    /**
+     * Stops listening to the grid.
+     */
+    @Override
+    public void close() {
+        grid.removeGridListener(this);
+    }
+}
@@ -0,0 +1,392 @@
+package models.search;
+
+import models.Grid;
+import models.GridListener;
+
+import java.util.Arrays;
+
+/**
+ * An incremental planner (D* Lite) that keeps its search tree between plans.
+ * <p>
+ * The search runs backwards from the goal, so the cost from every settled cell to the goal is
+ * known. When a cell of the grid changes, only the cells whose cost to the goal depends on it are
+ * repaired on the next {@link #replan()}, instead of searching again from scratch. The start can
+ * move along the path between plans, as it does for an agent walking to the goal.
+ * <p>
+ * A planner is not thread safe, and should only be used from the thread changing the grid.
+ */
+public class DStarLite implements GridListener, AutoCloseable {
+    /**
+     * The cost of a cell that can not reach the goal.
+     */
+    private static final int NO_PATH = Integer.MAX_VALUE;
+
+    /**
+     * The grid being planned on.
+     */
+    private final Grid grid;
+
+    /**
+     * Are diagonal steps allowed?
+     */
+    private final boolean checkDiagonals;
+
+    /**
+     * The cell the plan ends at, and the cell the agent is currently at.
+     */
+    private final int goal;
+    private int start;
+
+    /**
+     * The start at the time of the last plan, and how much the heuristic has shrunk since the
+     * first plan because the start moved. Adding this to the keys keeps the queue ordered
+     * without recomputing every key.
+     */
+    private int lastStart;
+    private int keyModifier;
+
+    /**
+     * The cost to the goal of every cell as of its last expansion, and the one step lookahead
+     * cost based on its neighbors. A cell is consistent when both are equal.
+     */
+    private final int[] gScores, rhsScores;
+
+    /**
+     * The inconsistent cells, ordered by their two part key.
+     */
+    private final IndexedBinaryHeap queue;
+
+    /**
+     * The cells that changed since the last plan.
+     */
+    private final IntList changedCells;
+
+    /**
+     * The number of cells expanded by all plans so far.
+     */
+    private long expansions;
+
+    /**
+     * Creates a new planner and starts listening to the grid. Call {@link #replan()} to plan the
+     * first path.
+     *
+     * @param grid           The grid to plan on.
+     * @param start          The id of the cell the agent starts at.
+     * @param goal           The id of the cell the agent wants to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     */
+    public DStarLite(Grid grid, int start, int goal, boolean checkDiagonals) {
+        int cells = grid.getWidth() * grid.getHeight();
+        this.grid = grid;
+        this.start = start;
+        this.goal = goal;
+        this.checkDiagonals = checkDiagonals;
+        lastStart = start;
+
+        gScores = new int[cells];
+        rhsScores = new int[cells];
+        Arrays.fill(gScores, NO_PATH);
+        Arrays.fill(rhsScores, NO_PATH);
+        queue = new IndexedBinaryHeap(cells);
+        changedCells = new IntList(16);
+
+        rhsScores[goal] = 0;
+        queue.insert(goal, calculateKey(goal));
+
+        grid.addGridListener(this);
+    }
+
+    @Override
+    public void cellChanged(Grid grid, int id) {
+        changedCells.add(id);
+    }
+
+    /**
+     * Moves the agent to a new cell, usually the next cell on the path.
+     *
+     * @param start The id of the cell the agent is now at.
+     */
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    /**
+     * Repairs the plan after the start moved or cells changed, and brings it up to date.
+     *
+     * @return True if the goal can be reached from the start, false otherwise.
+     */
+    public boolean replan() {
+        if (changedCells.size() > 0) {
+            keyModifier += heuristic(lastStart, start);
+            lastStart = start;
+
+            // Every step into or out of a changed cell changed cost, so the lookahead of the cell
+            // and all of its neighbors has to be worked out again.
+            for (int i = 0; i < changedCells.size(); i++) {
+                int cell = changedCells.get(i);
+                updateRhs(cell);
+                int x = cell % grid.getWidth();
+                int y = cell / grid.getWidth();
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int neighbor = neighbor(x, y, dx, dy);
+                        if (neighbor != -1) {
+                            updateRhs(neighbor);
+                        }
+                    }
+                }
+            }
+            changedCells.clear();
+        }
+
+        computeShortestPath();
+        return gScores[start] != NO_PATH;
+    }
+
+    /**
+     * Expands inconsistent cells until the cost from the start to the goal is known.
+     */
+    private void computeShortestPath() {
+        while (!queue.isEmpty()
+                && (queue.peekKey() < calculateKey(start) || rhsScores[start] != gScores[start])) {
+            int current = queue.peek();
+            long oldKey = queue.peekKey();
+            long newKey = calculateKey(current);
+            expansions++;
+
+            if (oldKey < newKey) {
+                // The key is out of date since the start moved.
+                queue.update(current, newKey);
+            } else if (gScores[current] > rhsScores[current]) {
+                // The cell got cheaper, settle it and pass the saving on to its neighbors.
+                gScores[current] = rhsScores[current];
+                queue.remove(current);
+                forEachNeighbor(current, true);
+            } else {
+                // The cell got more expensive, so it and its neighbors have to be worked out again.
+                gScores[current] = NO_PATH;
+                updateRhs(current);
+                forEachNeighbor(current, false);
+            }
+        }
+    }
+
+    /**
+     * Updates the neighbors of a cell after its cost to the goal changed.
+     *
+     * @param cell    The id of the cell.
+     * @param cheaper True if the cell got cheaper, false if it got more expensive.
+     */
+    private void forEachNeighbor(int cell, boolean cheaper) {
+        int x = cell % grid.getWidth();
+        int y = cell / grid.getWidth();
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int neighbor = neighbor(x, y, dx, dy);
+                if (neighbor == -1 || neighbor == goal) {
+                    continue;
+                }
+
+                if (cheaper) {
+                    int cost = add(stepCost(neighbor, cell, dx, dy), gScores[cell]);
+                    if (cost < rhsScores[neighbor]) {
+                        rhsScores[neighbor] = cost;
+                        updateVertex(neighbor);
+                    }
+                } else {
+                    updateRhs(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Works out the one step lookahead cost of a cell from its neighbors, then updates its place
+     * in the queue.
+     *
+     * @param cell The id of the cell.
+     */
+    private void updateRhs(int cell) {
+        if (cell != goal) {
+            int best = NO_PATH;
+            if (!grid.isObstacle(cell)) {
+                int x = cell % grid.getWidth();
+                int y = cell / grid.getWidth();
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int neighbor = neighbor(x, y, dx, dy);
+                        if (neighbor != -1) {
+                            best = Math.min(best, add(stepCost(cell, neighbor, dx, dy), gScores[neighbor]));
+                        }
+                    }
+                }
+            }
+            rhsScores[cell] = best;
+        }
+        updateVertex(cell);
+    }
+
+    /**
+     * Puts an inconsistent cell in the queue with an up to date key, or takes a consistent cell
+     * out of it.
+     *
+     * @param cell The id of the cell.
+     */
+    private void updateVertex(int cell) {
+        boolean queued = queue.contains(cell);
+        if (gScores[cell] != rhsScores[cell]) {
+            if (queued) {
+                queue.update(cell, calculateKey(cell));
+            } else {
+                queue.insert(cell, calculateKey(cell));
+            }
+        } else if (queued) {
+            queue.remove(cell);
+        }
+    }
+
+    /**
+     * Works out the key of a cell. The first part is the estimated cost of a path from the start
+     * through the cell, and ties are broken by the second part, the cost from the cell to the
+     * goal. Both parts are packed into one long so they compare in that order.
+     *
+     * @param cell The id of the cell.
+     * @return The key of the cell.
+     */
+    private long calculateKey(int cell) {
+        long cost = Math.min(gScores[cell], rhsScores[cell]);
+        if (cost == NO_PATH) {
+            return Long.MAX_VALUE;
+        }
+        return ((cost + heuristic(start, cell) + keyModifier) << 32) | cost;
+    }
+
+    /**
+     * Gets the id of the cell in a direction from a cell, if a step there is allowed.
+     *
+     * @param x  The X coordinate of the cell.
+     * @param y  The Y coordinate of the cell.
+     * @param dx The X direction of the step.
+     * @param dy The Y direction of the step.
+     * @return The id of the cell, or -1 if it is outside the grid or the step is not allowed.
+     */
+    private int neighbor(int x, int y, int dx, int dy) {
+        if ((dx == 0 && dy == 0) || (!checkDiagonals && dx != 0 && dy != 0)) {
+            return -1;
+        }
+
+        int nx = x + dx;
+        int ny = y + dy;
+        if (nx < 0 || nx >= grid.getWidth() || ny < 0 || ny >= grid.getHeight()) {
+            return -1;
+        }
+        return grid.cellId(nx, ny);
+    }
+
+    /**
+     * Gets the cost of a step between two neighboring cells.
+     *
+     * @param from The id of the cell the step starts at.
+     * @param to   The id of the cell the step ends at.
+     * @param dx   The X direction of the step.
+     * @param dy   The Y direction of the step.
+     * @return The cost of the step, or NO_PATH if either cell is an obstacle.
+     */
+    private int stepCost(int from, int to, int dx, int dy) {
+        if (grid.isObstacle(from) || grid.isObstacle(to)) {
+            return NO_PATH;
+        }
+        return grid.getStepCost(from, to, dx != 0 && dy != 0 ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+    }
+
+    /**
+     * Adds two costs, where either being NO_PATH makes the sum NO_PATH.
+     *
+     * @param a The first cost.
+     * @param b The second cost.
+     * @return The sum of the costs.
+     */
+    private static int add(int a, int b) {
+        return a == NO_PATH || b == NO_PATH ? NO_PATH : a + b;
+    }
+
+    /**
+     * Estimates the cost between two cells with the octile distance.
+     *
+     * @param a The id of the first cell.
+     * @param b The id of the second cell.
+     * @return The estimated cost.
+     */
+    private int heuristic(int a, int b) {
+        return AStarSearch.findOctileDistance(a, b, grid.getWidth());
+    }
+
+    /**
+     * Gets the current path from the start to the goal, by following the cheapest neighbor from
+     * each cell.
+     *
+     * @return The cell ids on the path from start to goal, or null if the goal can not be reached.
+     */
+    public int[] getPath() {
+        if (gScores[start] == NO_PATH) {
+            return null;
+        }
+
+        IntList path = new IntList(64);
+        int current = start;
+        path.add(current);
+        while (current != goal && path.size() <= gScores.length) {
+            int x = current % grid.getWidth();
+            int y = current / grid.getWidth();
+            int best = -1;
+            int bestCost = NO_PATH;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int neighbor = neighbor(x, y, dx, dy);
+                    if (neighbor == -1) {
+                        continue;
+                    }
+
+                    int cost = add(stepCost(current, neighbor, dx, dy), gScores[neighbor]);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = neighbor;
+                    }
+                }
+            }
+
+            if (best == -1) {
+                return null;
+            }
+            current = best;
+            path.add(current);
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Gets the cost of the current path from the start to the goal.
+     *
+     * @return The cost of the path, or Integer.MAX_VALUE if the goal can not be reached.
+     */
+    public int getPathCost() {
+        return gScores[start];
+    }
+
+    /**
+     * Gets the number of cells expanded by all plans so far, as a measure of the work done.
+     *
+     * @return The number of expansions.
+     */
+    public long getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Stops listening to the grid. Changes made after this are not planned around.
+     */
+    @Override
+    public void close() {
+        grid.removeGridListener(this);
+    }
+}
@@ -0,0 +1,493 @@
+package models.search;
+
+import models.Grid;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out the cost of the cheapest path from every cell to the closest of a set of goals, for
+ * example for crowds heading to the nearest exit. Step costs are the same both ways, so the cost
+ * to the goals is found with one search outwards from them, instead of one search from every cell.
+ * <p>
+ * Grids without costs searched without diagonal steps use a breadth first search, since every step
+ * costs the same. All others use Dijkstra's algorithm.
+ */
+public class DistanceField {
+    /**
+     * The distance of a cell that can not reach any goal.
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * The direction of a cell in a flow field that has no step to take, because it is a goal or
+     * can not reach one.
+     */
+    public static final byte NO_DIRECTION = -1;
+
+    /**
+     * The steps of the directions of a flow field, clockwise from up. Even directions are straight
+     * steps and odd directions are diagonal steps.
+     */
+    private static final int[] DIRECTION_X = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DIRECTION_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /**
+     * This class only has static methods.
+     */
+    private DistanceField() {
+    }
+
+    /**
+     * Works out the distance from every cell to the closest goal.
+     *
+     * @param grid           The grid to search.
+     * @param goals          The ids of the goal cells. Goals that are obstacles are ignored.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The distance of every cell, or {@link #UNREACHABLE} for cells that can not reach a
+     *         goal.
+     */
+    public static int[] compute(Grid grid, int[] goals, boolean checkDiagonals) {
+        int[] distances = new int[grid.getWidth() * grid.getHeight()];
+        compute(grid, goals, checkDiagonals, distances);
+        return distances;
+    }
+
+    /**
+     * Works out the distance from every cell to the closest goal into an existing array, so a
+     * field updated every frame does not allocate a new one.
+     *
+     * @param grid           The grid to search.
+     * @param goals          The ids of the goal cells. Goals that are obstacles are ignored.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param distances      The array to fill, with one entry for every cell of the grid.
+     */
+    public static void compute(Grid grid, int[] goals, boolean checkDiagonals, int[] distances) {
+        compute(grid, goals, checkDiagonals, null, new FieldBuffers(distances));
+    }
+
+    /**
+     * Works out the distance to the closest goal for a few target cells, stopping as soon as they
+     * are known rather than searching the whole grid. Every cell on a shortest path from a target
+     * is closer to a goal than the target, so {@link #tracePath} still finds shortest paths from
+     * the targets. Other cells may be left {@link #UNREACHABLE} or further away than they are.
+     *
+     * @param grid           The grid to search.
+     * @param goals          The ids of the goal cells. Goals that are obstacles are ignored.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param distances      The array to fill, with one entry for every cell of the grid.
+     * @param targets        The ids of the cells whose distances are needed, or null for every
+     *                       cell. For targets that are obstacles, the distances of their neighbors
+     *                       are worked out instead.
+     */
+    public static void compute(Grid grid, int[] goals, boolean checkDiagonals, int[] distances, int[] targets) {
+        compute(grid, goals, checkDiagonals, targets, new FieldBuffers(distances));
+    }
+
+    /**
+     * Works out the distance to the closest goal for a few target cells, or for every cell, in
+     * reused buffers. The other overloads allocate a queue or heap for every call, while these
+     * buffers keep theirs, so callers working out a field per frame or per batch allocate nothing.
+     *
+     * @param grid           The grid to search.
+     * @param goals          The ids of the goal cells. Goals that are obstacles are ignored.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param targets        The ids of the cells whose distances are needed, or null for every
+     *                       cell, as in {@link #compute(Grid, int[], boolean, int[], int[])}.
+     * @param buffers        The buffers to work in, made for a grid of this size. The distances
+     *                       end up in {@link FieldBuffers#getDistances()}.
+     */
+    public static void compute(Grid grid, int[] goals, boolean checkDiagonals, int[] targets, FieldBuffers buffers) {
+        int[] distances = buffers.getDistances();
+        if (distances.length != grid.getWidth() * grid.getHeight()) {
+            throw new IllegalArgumentException("Expected an array of " + grid.getWidth() * grid.getHeight()
+                    + " distances, but got " + distances.length + ".");
+        }
+
+        BitSet pending = targets == null ? null : findPending(grid, targets, checkDiagonals, buffers.pending());
+        if (!checkDiagonals && !grid.hasCosts()) {
+            searchBreadthFirst(grid, goals, distances, buffers.queue(), pending);
+        } else {
+            searchDijkstra(grid, goals, checkDiagonals, distances, buffers.heap(), pending);
+        }
+    }
+
+    /**
+     * Gets the cells whose distances a bounded search has to work out: the open targets, and the
+     * open neighbors of the targets that are obstacles, since paths start by stepping to them.
+     *
+     * @param grid           The grid to search.
+     * @param targets        The ids of the target cells.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param pending        An empty set to add the cells to.
+     * @return The cells to work out.
+     */
+    private static BitSet findPending(Grid grid, int[] targets, boolean checkDiagonals, BitSet pending) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int step = checkDiagonals ? 1 : 2;
+        for (int target : targets) {
+            if (!grid.isObstacle(target)) {
+                pending.set(target);
+                continue;
+            }
+
+            int x = target % width;
+            int y = target / width;
+            for (int direction = 0; direction < DIRECTION_X.length; direction += step) {
+                int nx = x + DIRECTION_X[direction];
+                int ny = y + DIRECTION_Y[direction];
+                if (nx >= 0 && nx < width && ny >= 0 && ny < height && !grid.isObstacle(ny * width + nx)) {
+                    pending.set(ny * width + nx);
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Works out one distance field for each goal, splitting the goals across the threads of the
+     * common fork join pool. The grid must not change while this runs. Every field is kept, so
+     * see {@link #computeAll(Grid, int[], boolean, ForkJoinPool)} for how much memory they take.
+     *
+     * @param grid           The grid to search.
+     * @param goals          The ids of the goal cells, one for each field.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The distance field of every goal, in the order of the goals.
+     */
+    public static int[][] computeAll(Grid grid, int[] goals, boolean checkDiagonals) {
+        return computeAll(grid, goals, checkDiagonals, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Works out one distance field for each goal, splitting the goals across the threads of a
+     * fork join pool. The grid must not change while this runs.
+     * <p>
+     * Every field is an int for each cell, and all of them are returned at once, so this takes 4
+     * bytes per cell per goal: 16 goals on a 1024x1024 grid take 64 MiB, and on a 4096x4096 grid
+     * 1 GiB. Work out the fields one at a time with {@link #compute(Grid, int[], boolean, int[])}
+     * when they do not all need to be kept.
+     *
+     * @param grid           The grid to search.
+     * @param goals          The ids of the goal cells, one for each field.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param pool           The pool to run the searches on.
+     * @return The distance field of every goal, in the order of the goals.
+     * @throws IllegalArgumentException If the fields would take more memory than the heap can
+     *                                  ever hold, which is checked before any search runs.
+     */
+    public static int[][] computeAll(Grid grid, int[] goals, boolean checkDiagonals, ForkJoinPool pool) {
+        long bytes = 4L * grid.getWidth() * grid.getHeight() * goals.length;
+        if (bytes > Runtime.getRuntime().maxMemory()) {
+            throw new IllegalArgumentException(goals.length + " distance fields take " + bytes
+                    + " bytes, more than the heap can hold.");
+        }
+
+        int[][] fields = new int[goals.length][];
+        pool.invoke(new FieldTask(grid, goals, checkDiagonals, fields, 0, goals.length));
+        return fields;
+    }
+
+    /**
+     * Turns a distance field into a flow field, the direction of the cheapest step towards a goal
+     * from every cell. Following the directions from any cell leads to the closest goal along a
+     * shortest path.
+     *
+     * @param grid           The grid the distances were worked out on.
+     * @param distances      The distance field.
+     * @param checkDiagonals True if diagonal steps were allowed, false otherwise.
+     * @return The direction of every cell, or {@link #NO_DIRECTION} for goals and cells that can
+     *         not reach a goal. See {@link #getDirectionX(int)} and {@link #getDirectionY(int)}.
+     */
+    public static byte[] toFlowField(Grid grid, int[] distances, boolean checkDiagonals) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        byte[] directions = new byte[distances.length];
+        int step = checkDiagonals ? 1 : 2;
+
+        for (int cell = 0; cell < distances.length; cell++) {
+            directions[cell] = NO_DIRECTION;
+            // Goals are the only cells with a distance of 0, since every step costs something.
+            if (distances[cell] <= 0) {
+                continue;
+            }
+
+            int x = cell % width;
+            int y = cell / width;
+            int bestCost = Integer.MAX_VALUE;
+            for (int direction = 0; direction < DIRECTION_X.length; direction += step) {
+                int nx = x + DIRECTION_X[direction];
+                int ny = y + DIRECTION_Y[direction];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+
+                int neighbor = ny * width + nx;
+                if (distances[neighbor] == UNREACHABLE) {
+                    continue;
+                }
+
+                int cost = distances[neighbor] + grid.getStepCost(cell, neighbor,
+                        (direction & 1) == 0 ? AStarSearch.STRAIGHT_COST : AStarSearch.DIAGONAL_COST);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    directions[cell] = (byte) direction;
+                }
+            }
+        }
+        return directions;
+    }
+
+    /**
+     * Gets the X step of a flow field direction.
+     *
+     * @param direction The direction, from 0 to 7.
+     * @return -1, 0 or 1.
+     */
+    public static int getDirectionX(int direction) {
+        return DIRECTION_X[direction];
+    }
+
+    /**
+     * Gets the Y step of a flow field direction.
+     *
+     * @param direction The direction, from 0 to 7.
+     * @return -1, 0 or 1.
+     */
+    public static int getDirectionY(int direction) {
+        return DIRECTION_Y[direction];
+    }
+
+    /**
+     * Follows a distance field downhill from a cell to the closest goal, taking the cheapest step
+     * each time, which gives a shortest path. Any number of agents heading to the same goals can
+     * share one field this way instead of searching once each.
+     *
+     * @param grid           The grid the distances were worked out on.
+     * @param distances      The distance field.
+     * @param start          The id of the cell to start from. It may be an obstacle, as in the
+     *                       other searches.
+     * @param checkDiagonals True if diagonal steps were allowed, false otherwise.
+     * @return The cell ids on the path from the start to the goal, or null if no goal can be
+     *         reached.
+     */
+    public static int[] tracePath(Grid grid, int[] distances, int start, boolean checkDiagonals) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int step = checkDiagonals ? 1 : 2;
+        IntList path = new IntList(64);
+        path.add(start);
+
+        // Goals are the only cells with a distance of 0, and every step leads to a cell closer to
+        // one, so this ends.
+        int current = start;
+        while (distances[current] != 0) {
+            int x = current % width;
+            int y = current / width;
+            int bestCost = Integer.MAX_VALUE;
+            int best = -1;
+            for (int direction = 0; direction < DIRECTION_X.length; direction += step) {
+                int nx = x + DIRECTION_X[direction];
+                int ny = y + DIRECTION_Y[direction];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+
+                int neighbor = ny * width + nx;
+                if (distances[neighbor] == UNREACHABLE) {
+                    continue;
+                }
+
+                int cost = distances[neighbor] + grid.getStepCost(current, neighbor,
+                        (direction & 1) == 0 ? AStarSearch.STRAIGHT_COST : AStarSearch.DIAGONAL_COST);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = neighbor;
+                }
+            }
+
+            if (best == -1) {
+                return null;
+            }
+            current = best;
+            path.add(current);
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Fills a distance field with a breadth first search, for grids where every step costs
+     * {@link AStarSearch#STRAIGHT_COST}.
+     *
+     * @param grid      The grid to search.
+     * @param goals     The ids of the goal cells.
+     * @param distances The array to fill.
+     * @param queue     The array to queue cells in, with room for every cell.
+     * @param pending   The cells to stop after, cleared as they are reached, or null to search
+     *                  the whole grid.
+     */
+    private static void searchBreadthFirst(Grid grid, int[] goals, int[] distances, int[] queue, BitSet pending) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        Arrays.fill(distances, UNREACHABLE);
+
+        // Every cell is queued at most once, so an array the size of the grid holds the queue.
+        int head = 0;
+        int tail = 0;
+        for (int goal : goals) {
+            if (!grid.isObstacle(goal) && distances[goal] == UNREACHABLE) {
+                distances[goal] = 0;
+                queue[tail++] = goal;
+                clear(pending, goal);
+            }
+        }
+
+        // Distances are final once a cell is queued, so the search can stop when the last pending
+        // cell is.
+        while (head < tail && (pending == null || !pending.isEmpty())) {
+            int current = queue[head++];
+            int x = current % width;
+            int y = current / width;
+            int distance = distances[current] + AStarSearch.STRAIGHT_COST;
+
+            for (int direction = 0; direction < DIRECTION_X.length; direction += 2) {
+                int nx = x + DIRECTION_X[direction];
+                int ny = y + DIRECTION_Y[direction];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+
+                int neighbor = ny * width + nx;
+                if (distances[neighbor] == UNREACHABLE && !grid.isObstacle(neighbor)) {
+                    distances[neighbor] = distance;
+                    queue[tail++] = neighbor;
+                    clear(pending, neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills a distance field with Dijkstra's algorithm.
+     *
+     * @param grid           The grid to search.
+     * @param goals          The ids of the goal cells.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param distances      The array to fill.
+     * @param open           An empty heap with room for every cell.
+     * @param pending        The cells to stop after, cleared as they are reached, or null to
+     *                       search the whole grid.
+     */
+    private static void searchDijkstra(Grid grid, int[] goals, boolean checkDiagonals, int[] distances,
+                                       IndexedBinaryHeap open, BitSet pending) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int step = checkDiagonals ? 1 : 2;
+        Arrays.fill(distances, Integer.MAX_VALUE);
+
+        for (int goal : goals) {
+            if (!grid.isObstacle(goal) && !open.contains(goal)) {
+                distances[goal] = 0;
+                open.insert(goal, 0);
+            }
+        }
+
+        // Distances are final once a cell is polled, so the search can stop when the last pending
+        // cell is.
+        while (!open.isEmpty() && (pending == null || !pending.isEmpty())) {
+            int current = open.poll();
+            clear(pending, current);
+            int x = current % width;
+            int y = current / width;
+
+            for (int direction = 0; direction < DIRECTION_X.length; direction += step) {
+                int nx = x + DIRECTION_X[direction];
+                int ny = y + DIRECTION_Y[direction];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+
+                int neighbor = ny * width + nx;
+                if (grid.isObstacle(neighbor)) {
+                    continue;
+                }
+
+                int distance = distances[current] + grid.getStepCost(current, neighbor,
+                        (direction & 1) == 0 ? AStarSearch.STRAIGHT_COST : AStarSearch.DIAGONAL_COST);
+                if (distance < distances[neighbor]) {
+                    if (open.contains(neighbor)) {
+                        open.update(neighbor, distance);
+                    } else {
+                        open.insert(neighbor, distance);
+                    }
+                    distances[neighbor] = distance;
+                }
+            }
+        }
+
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] == Integer.MAX_VALUE) {
+                distances[i] = UNREACHABLE;
+            }
+        }
+    }
+
+    /**
+     * Marks a cell as reached in a bounded search.
+     *
+     * @param pending The cells the search still has to reach, or null if it searches the whole
+     *                grid.
+     * @param cell    The id of the cell.
+     */
+    private static void clear(BitSet pending, int cell) {
+        if (pending != null) {
+            pending.clear(cell);
+        }
+    }
+
+    /**
+     * Works out the distance fields of a range of goals, splitting the range in half until only
+     * one goal is left.
+     */
+    private static class FieldTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Grid grid;
+        private final int[] goals;
+        private final boolean checkDiagonals;
+        private final int[][] fields;
+        private final int from, to;
+
+        /**
+         * Creates a task for a range of goals.
+         *
+         * @param grid           The grid to search.
+         * @param goals          The ids of every goal cell.
+         * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+         * @param fields         The array the fields are stored in.
+         * @param from           The index of the first goal of the range.
+         * @param to             The index after the last goal of the range.
+         */
+        FieldTask(Grid grid, int[] goals, boolean checkDiagonals, int[][] fields, int from, int to) {
+            this.grid = grid;
+            this.goals = goals;
+            this.checkDiagonals = checkDiagonals;
+            this.fields = fields;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                fields[from] = DistanceField.compute(grid, new int[]{goals[from]}, checkDiagonals);
+            } else if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FieldTask(grid, goals, checkDiagonals, fields, from, middle),
+                        new FieldTask(grid, goals, checkDiagonals, fields, middle, to));
+            }
+        }
+    }
+}
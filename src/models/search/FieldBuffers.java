@@ -0,0 +1,101 @@
+package models.search;
+
+import java.util.BitSet;
+
+/**
+ * The arrays {@link DistanceField} fills and works in, kept together so a caller that works out
+ * many fields, such as a pool of them shared between threads, allocates them once rather than on
+ * every call. The working arrays are created the first time a search needs them, so buffers only
+ * ever used for breadth first searches never hold a heap. Buffers are not thread safe, so each
+ * thread needs its own.
+ */
+public class FieldBuffers {
+    /**
+     * The distance of every cell to the closest goal, filled by each search.
+     */
+    private final int[] distances;
+
+    /**
+     * The queue of the breadth first search, with room for every cell, or null until it is needed.
+     */
+    private int[] queue;
+
+    /**
+     * The open list of Dijkstra's algorithm, or null until it is needed.
+     */
+    private IndexedBinaryHeap heap;
+
+    /**
+     * The cells a bounded search still has to reach, or null until it is needed.
+     */
+    private BitSet pending;
+
+    /**
+     * Creates new buffers for a grid.
+     *
+     * @param cells The number of cells in the grid.
+     */
+    public FieldBuffers(int cells) {
+        this(new int[cells]);
+    }
+
+    /**
+     * Creates new buffers that fill an existing distance array.
+     *
+     * @param distances The array to fill, with one entry for every cell of the grid.
+     */
+    FieldBuffers(int[] distances) {
+        this.distances = distances;
+    }
+
+    /**
+     * Gets the distances of the last search.
+     *
+     * @return The distance of every cell, or {@link DistanceField#UNREACHABLE} for cells that can
+     *         not reach a goal.
+     */
+    public int[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Gets the queue of the breadth first search.
+     *
+     * @return An array with room for every cell. Its contents are left from the last search.
+     */
+    int[] queue() {
+        if (queue == null) {
+            queue = new int[distances.length];
+        }
+        return queue;
+    }
+
+    /**
+     * Gets the open list of Dijkstra's algorithm.
+     *
+     * @return An empty heap with room for every cell.
+     */
+    IndexedBinaryHeap heap() {
+        if (heap == null) {
+            heap = new IndexedBinaryHeap(distances.length);
+        } else {
+            // A bounded search can stop with cells left in the heap.
+            heap.clear();
+        }
+        return heap;
+    }
+
+    /**
+     * Gets the set of cells a bounded search still has to reach.
+     *
+     * @return An empty set with room for every cell.
+     */
+    BitSet pending() {
+        if (pending == null) {
+            pending = new BitSet(distances.length);
+        } else {
+            pending.clear();
+        }
+        return pending;
+    }
+}
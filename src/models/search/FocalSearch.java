@@ -0,0 +1,192 @@
+package models.search;
+
+import models.Grid;
+
+/**
+ * Focal search, also known as A* epsilon, which finds a path costing at most a bound times the
+ * cheapest path. Like A* it tracks the lowest F Score of its open cells, but rather than always
+ * expanding that cell it may expand any open cell whose F Score is within the bound of it. Of
+ * those, the focal list, it expands the one with the lowest F Score with the heuristic weighted by
+ * the bound, as weighted A* would, so it dives towards the goal while the lowest F Score keeps it
+ * honest. Ordering the focal list by the estimate to the goal alone is the textbook choice, but
+ * on grids it wanders along the many cells with the same estimate and expands more than A*.
+ * <p>
+ * The open cells are kept in three heaps: every open cell by F Score, to know the lowest one; the
+ * focal cells by their weighted F Score; and the rest by F Score in the context's open list,
+ * waiting for the lowest F Score to rise far enough to let them into the focal list. The lowest F
+ * Score when the goal is reached is a lower bound on the cost of the cheapest path, which the
+ * search reports through {@link SearchContext#getStats()}.
+ */
+public class FocalSearch implements Pathfinder {
+    /**
+     * How many times the cheapest path the path found may cost.
+     */
+    private final double bound;
+
+    /**
+     * The heuristics used with and without diagonal steps.
+     */
+    private final Heuristic diagonalHeuristic, straightHeuristic;
+
+    /**
+     * Creates a new focal search using the tightest admissible heuristic for each kind of
+     * movement.
+     *
+     * @param bound How many times the cheapest path the path found may cost, at least 1.
+     */
+    public FocalSearch(double bound) {
+        this(bound, Heuristics.OCTILE, Heuristics.MANHATTAN);
+    }
+
+    /**
+     * Creates a new focal search. The bound only holds if the heuristics never overestimate.
+     *
+     * @param bound             How many times the cheapest path the path found may cost, at least 1.
+     * @param diagonalHeuristic The heuristic to use when diagonal steps are allowed.
+     * @param straightHeuristic The heuristic to use when they are not.
+     */
+    public FocalSearch(double bound, Heuristic diagonalHeuristic, Heuristic straightHeuristic) {
+        if (bound < 1) {
+            throw new IllegalArgumentException("The bound must be at least 1, not " + bound + ".");
+        }
+
+        this.bound = bound;
+        this.diagonalHeuristic = diagonalHeuristic;
+        this.straightHeuristic = straightHeuristic;
+    }
+
+    /**
+     * Searches for a path from a start cell to a goal cell that costs at most the bound times the
+     * cheapest path. If a path is found it is kept in the context.
+     *
+     * @param context        The context holding the search's values.
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return True if a path was found, false otherwise.
+     */
+    @Override
+    public boolean search(SearchContext context, int start, int goal, boolean checkDiagonals) {
+        Grid grid = context.getGrid();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        OpenList waiting = context.getOpenList();
+        Heuristic heuristic = checkDiagonals ? diagonalHeuristic : straightHeuristic;
+
+        context.reset();
+        IndexedBinaryHeap fScores = context.getExtraHeap(0);
+        IndexedBinaryHeap focal = context.getExtraHeap(1);
+        context.update(start, 0, -1);
+        int startEstimate = estimate(heuristic, start, goal, width);
+        context.openExtra(fScores, start, startEstimate);
+        focal.insert(start, focalKey(startEstimate, startEstimate));
+
+        while (!fScores.isEmpty()) {
+            int lowestFScore = (int) fScores.peekKey();
+            long maxFScore = (long) (bound * lowestFScore);
+
+            // The lowest F Score only rises, letting waiting cells into the focal list.
+            while (!waiting.isEmpty()) {
+                int cell = waiting.peek();
+                int estimate = estimate(heuristic, cell, goal, width);
+                int fScore = context.getGScore(cell) + estimate;
+                if (fScore > maxFScore) {
+                    break;
+                }
+                waiting.poll();
+                focal.insert(cell, focalKey(estimate, fScore));
+            }
+
+            // The cell with the lowest F Score is always in the focal list, so it is never empty.
+            int current = focal.poll();
+            fScores.remove(current);
+
+            if (current == goal) {
+                context.setLowerBound(lowestFScore);
+                context.buildPath(goal);
+                return true;
+            }
+
+            context.markClosed(current);
+
+            int x = current % width;
+            int y = current / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if ((dx == 0 && dy == 0) || (!checkDiagonals && dx != 0 && dy != 0) || nx < 0 || nx >= width
+                            || ny < 0 || ny >= height) {
+                        continue;
+                    }
+
+                    int neighbor = ny * width + nx;
+                    if (grid.isObstacle(neighbor)) {
+                        continue;
+                    }
+
+                    int newGScore = context.getGScore(current) + grid.getStepCost(current, neighbor,
+                            dx != 0 && dy != 0 ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+                    if (newGScore >= context.getGScore(neighbor)) {
+                        continue;
+                    }
+
+                    // Closed cells are opened again when they get cheaper, which keeps the lowest F
+                    // Score a lower bound on the cheapest path.
+                    context.update(neighbor, newGScore, current);
+                    int estimate = estimate(heuristic, neighbor, goal, width);
+                    int fScore = newGScore + estimate;
+                    // Every open cell is counted once, in the F Score heap, whichever list it waits in.
+                    context.openExtra(fScores, neighbor, fScore);
+
+                    if (focal.contains(neighbor)) {
+                        focal.update(neighbor, focalKey(estimate, fScore));
+                    } else if (fScore <= maxFScore && !waiting.contains(neighbor)) {
+                        focal.insert(neighbor, focalKey(estimate, fScore));
+                    } else if (waiting.contains(neighbor)) {
+                        waiting.decreaseKey(neighbor, fScore, newGScore);
+                    } else {
+                        waiting.push(neighbor, fScore, newGScore);
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Estimates the cost from a cell to the goal.
+     *
+     * @param heuristic The heuristic estimating the cost.
+     * @param cell      The id of the cell.
+     * @param goal      The id of the goal cell.
+     * @param width     The width of the grid.
+     * @return The estimated cost.
+     */
+    private static int estimate(Heuristic heuristic, int cell, int goal, int width) {
+        return heuristic.estimate(cell, goal, Math.abs(cell % width - goal % width),
+                Math.abs(cell / width - goal / width));
+    }
+
+    /**
+     * Gets the key of a cell in the focal list, which orders cells by their F Score with the
+     * heuristic weighted by the bound, and breaks ties by their estimate to the goal.
+     *
+     * @param estimate The estimated cost from the cell to the goal.
+     * @param fScore   The F Score of the cell.
+     * @return The key.
+     */
+    private long focalKey(int estimate, int fScore) {
+        return (long) (fScore + (bound - 1) * estimate) << 32 | estimate;
+    }
+
+    /**
+     * Gets the bound of the search.
+     *
+     * @return How many times the cheapest path the path found may cost.
+     */
+    public double getBound() {
+        return bound;
+    }
+}
@@ -0,0 +1,46 @@
+package models.search;
+
+/**
+ * Estimates the cost of the cheapest path between two cells from how far apart they are. A search
+ * only finds the shortest path if the estimate never exceeds the real cost, using straight steps
+ * of {@link AStarSearch#STRAIGHT_COST} and diagonal steps of {@link AStarSearch#DIAGONAL_COST}.
+ * See {@link Heuristics} for the built in estimates, and {@link LandmarkHeuristic} for one that
+ * also knows about the walls of a map.
+ */
+public interface Heuristic {
+    /**
+     * Estimates the cost between two cells.
+     *
+     * @param xDiff The distance between the cells along the X axis, at least 0.
+     * @param yDiff The distance between the cells along the Y axis, at least 0.
+     * @return The estimated cost.
+     */
+    int estimate(int xDiff, int yDiff);
+
+    /**
+     * Estimates the cost from a cell to the goal. Searches call this rather than
+     * {@link #estimate(int, int)}, so heuristics that depend on where the cells are, not only on
+     * how far apart they are, can override it.
+     *
+     * @param cell  The id of the cell.
+     * @param goal  The id of the goal cell.
+     * @param xDiff The distance between the cells along the X axis, at least 0.
+     * @param yDiff The distance between the cells along the Y axis, at least 0.
+     * @return The estimated cost.
+     */
+    default int estimate(int cell, int goal, int xDiff, int yDiff) {
+        return estimate(xDiff, yDiff);
+    }
+
+    /**
+     * Does this heuristic never overestimate, so A* using it finds the cheapest path? Searches only
+     * report their paths as the cheapest if it does. Heuristics that do not say are assumed not
+     * to.
+     *
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return True if the estimate never exceeds the real cost, false if it may or is not known.
+     */
+    default boolean isAdmissible(boolean checkDiagonals) {
+        return false;
+    }
+}
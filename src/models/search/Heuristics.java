@@ -0,0 +1,103 @@
+package models.search;
+
+/**
+ * The built in heuristics. Each one only uses integer arithmetic, without allocation, so it is
+ * cheap enough to run for every cell a search opens. All of them but {@link #MANHATTAN} never
+ * exceed the cost of the cheapest path, with or without diagonal steps.
+ */
+public enum Heuristics implements Heuristic {
+    /**
+     * The exact cost on an open grid with diagonal steps, straight steps along the longer axis and
+     * diagonal ones for the rest. The tightest admissible estimate when diagonals are allowed.
+     */
+    OCTILE {
+        @Override
+        public int estimate(int xDiff, int yDiff) {
+            return AStarSearch.STRAIGHT_COST * Math.max(xDiff, yDiff)
+                    + (AStarSearch.DIAGONAL_COST - AStarSearch.STRAIGHT_COST) * Math.min(xDiff, yDiff);
+        }
+    },
+
+    /**
+     * The exact cost on an open grid with straight steps only. The tightest admissible estimate
+     * without diagonals, but it overestimates when diagonals are allowed.
+     */
+    MANHATTAN {
+        @Override
+        public int estimate(int xDiff, int yDiff) {
+            return AStarSearch.STRAIGHT_COST * (xDiff + yDiff);
+        }
+
+        @Override
+        public boolean isAdmissible(boolean checkDiagonals) {
+            return !checkDiagonals;
+        }
+    },
+
+    /**
+     * The number of steps if diagonal steps cost the same as straight ones. Always admissible,
+     * but looser than {@link #OCTILE}.
+     */
+    CHEBYSHEV {
+        @Override
+        public int estimate(int xDiff, int yDiff) {
+            return AStarSearch.STRAIGHT_COST * Math.max(xDiff, yDiff);
+        }
+    },
+
+    /**
+     * The straight line distance, scaled down so it never exceeds {@link #OCTILE}. Unscaled, the
+     * distance of 10 per cell overshoots the cost of diagonal steps of 14 rather than 10 times the
+     * square root of 2, so it is multiplied by {@code DIAGONAL_COST / (STRAIGHT_COST * sqrt(2))},
+     * which makes it the square root of 98 per cell, and rounded down. That keeps it admissible
+     * both on a grid and for the any angle lines of {@link ThetaStarSearch}. It is looser than
+     * {@link #OCTILE} everywhere but along the diagonals, and the only built in heuristic that
+     * loops, to take the square root in integers.
+     */
+    EUCLIDEAN {
+        @Override
+        public int estimate(int xDiff, int yDiff) {
+            long squared = (long) xDiff * xDiff + (long) yDiff * yDiff;
+            return (int) squareRoot(EUCLIDEAN_SCALE * squared);
+        }
+    };
+
+    /**
+     * The square of the length of a cell in {@link #EUCLIDEAN}, {@code (DIAGONAL_COST / sqrt(2))^2}.
+     */
+    private static final long EUCLIDEAN_SCALE =
+            (long) AStarSearch.DIAGONAL_COST * AStarSearch.DIAGONAL_COST / 2;
+
+    /**
+     * Does this heuristic never overestimate? All of them but {@link #MANHATTAN} never do.
+     *
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return True if the estimate never exceeds the real cost, false otherwise.
+     */
+    @Override
+    public boolean isAdmissible(boolean checkDiagonals) {
+        return true;
+    }
+
+    /**
+     * Takes the square root of a number in integers, one bit of the root at a time.
+     *
+     * @param value The number, at least 0.
+     * @return The square root, rounded down.
+     */
+    private static long squareRoot(long value) {
+        long root = 0;
+        // The highest power of 4 that is not above the value.
+        long bit = value == 0 ? 0 : 1L << ((63 - Long.numberOfLeadingZeros(value)) & ~1);
+        while (bit != 0) {
+            if (value >= root + bit) {
+                value -= root + bit;
+                root = (root >> 1) + bit;
+            } else {
+                root >>= 1;
+            }
+            bit >>= 2;
+        }
+        return root;
+    }
+}
@@ -0,0 +1,219 @@
+package models.search;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of cell ids that also tracks where each cell sits in the heap. Knowing the
+ * position of a cell gives O(1) membership checks and lets its key be lowered in O(log n),
+ * instead of adding the cell a second time.
+ * <p>
+ * Keys are stored as longs, so besides the int keys of {@link OpenList} the heap can also order
+ * cells by keys made of two parts, such as those of {@link DStarLite}.
+ */
+public class IndexedBinaryHeap implements OpenList {
+    /**
+     * The cell ids in heap order.
+     */
+    private int[] heap;
+
+    /**
+     * The key of the cell at the same position in the heap.
+     */
+    private long[] keys;
+
+    /**
+     * The position of every cell in the heap, indexed by cell id, or -1 if it is not in the heap.
+     */
+    private int[] positions;
+
+    /**
+     * The number of cells in the heap.
+     */
+    private int size;
+
+    /**
+     * Creates a new heap.
+     *
+     * @param cells The number of cells in the grid, every cell id must be below this.
+     */
+    public IndexedBinaryHeap(int cells) {
+        heap = new int[Math.min(cells, 1024)];
+        keys = new long[heap.length];
+        positions = new int[cells];
+        Arrays.fill(positions, -1);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return positions[id] != -1;
+    }
+
+    @Override
+    public void push(int id, int key) {
+        insert(id, key);
+    }
+
+    @Override
+    public void decreaseKey(int id, int key) {
+        siftUp(positions[id], id, key);
+    }
+
+    /**
+     * Adds a cell that is not in the heap yet.
+     *
+     * @param id  The id of the cell.
+     * @param key The key of the cell.
+     */
+    public void insert(int id, long key) {
+        if (size == heap.length) {
+            int capacity = Math.min(positions.length, heap.length * 2);
+            heap = Arrays.copyOf(heap, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+
+        siftUp(size++, id, key);
+    }
+
+    /**
+     * Changes the key of a cell that is already in the heap, in either direction.
+     *
+     * @param id  The id of the cell.
+     * @param key The new key of the cell.
+     */
+    public void update(int id, long key) {
+        int position = positions[id];
+        if (key < keys[position]) {
+            siftUp(position, id, key);
+        } else {
+            siftDown(position, id, key);
+        }
+    }
+
+    /**
+     * Removes a cell from anywhere in the heap.
+     *
+     * @param id The id of the cell, which must be in the heap.
+     */
+    public void remove(int id) {
+        int position = positions[id];
+        positions[id] = -1;
+
+        size--;
+        if (position == size) {
+            return;
+        }
+
+        // Move the last cell into the gap, then restore the heap order in whichever direction.
+        int last = heap[size];
+        long lastKey = keys[size];
+        if (position > 0 && lastKey < keys[(position - 1) >>> 1]) {
+            siftUp(position, last, lastKey);
+        } else {
+            siftDown(position, last, lastKey);
+        }
+    }
+
+    /**
+     * Gets the lowest key in the heap without removing its cell.
+     *
+     * @return The lowest key.
+     */
+    public long peekKey() {
+        return keys[0];
+    }
+
+    @Override
+    public int peek() {
+        return heap[0];
+    }
+
+    @Override
+    public int poll() {
+        int top = heap[0];
+        positions[top] = -1;
+
+        size--;
+        if (size > 0) {
+            siftDown(0, heap[size], keys[size]);
+        }
+        return top;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves a cell up from the given position until its parent's key is not greater than its own.
+     *
+     * @param position The position the cell starts at.
+     * @param id       The id of the cell.
+     * @param key      The key of the cell.
+     */
+    private void siftUp(int position, int id, long key) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+
+            place(position, heap[parent], keys[parent]);
+            position = parent;
+        }
+
+        place(position, id, key);
+    }
+
+    /**
+     * Moves a cell down from the given position until neither child has a lower key.
+     *
+     * @param position The position the cell starts at.
+     * @param id       The id of the cell.
+     * @param key      The key of the cell.
+     */
+    private void siftDown(int position, int id, long key) {
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child]) {
+                child = right;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+
+            place(position, heap[child], keys[child]);
+            position = child;
+        }
+
+        place(position, id, key);
+    }
+
+    /**
+     * Puts a cell at a position in the heap.
+     *
+     * @param position The position in the heap.
+     * @param id       The id of the cell.
+     * @param key      The key of the cell.
+     */
+    private void place(int position, int id, long key) {
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,76 @@
+package models.search;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints, used where a list of cell ids is needed without boxing.
+ */
+class IntList {
+    private int[] values;
+    private int size;
+
+    /**
+     * Creates a new, empty list.
+     *
+     * @param capacity The number of values the list can hold before it has to grow.
+     */
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 4)];
+    }
+
+    /**
+     * Adds a value to the end of the list.
+     *
+     * @param value The value to add.
+     */
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Gets a value from the list.
+     *
+     * @param index The index of the value.
+     * @return The value.
+     */
+    int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Gets the number of values in the list.
+     *
+     * @return The size of the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes the last value from the list.
+     *
+     * @return The value that was removed.
+     */
+    int removeLast() {
+        return values[--size];
+    }
+
+    /**
+     * Removes every value from the list.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copies the values of the list into an array.
+     *
+     * @return The values, in order.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
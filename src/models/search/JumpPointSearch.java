@@ -0,0 +1,261 @@
+package models.search;
+
+import models.Grid;
+
+/**
+ * Jump Point Search over a uniform cost grid where diagonal steps are always allowed.
+ * <p>
+ * Instead of opening every neighbor, the search only follows the directions that could lead to
+ * a path no symmetric path already covers, and keeps stepping in that direction until it finds a
+ * jump point: the goal, or a cell with a forced neighbor that an obstacle makes reachable only
+ * through it. Only jump points are queued, so on open terrain far fewer cells are expanded than
+ * with {@link AStarSearch}, while the path found is still optimal.
+ * <p>
+ * Jump points only help when diagonal steps are allowed, and pruning symmetric paths is only
+ * sound when every cell costs the same, so otherwise the search falls back to plain A*.
+ */
+public class JumpPointSearch implements Pathfinder {
+    /**
+     * The search used when diagonal steps are not allowed or cells have costs.
+     */
+    private final AStarSearch fallback = new AStarSearch();
+
+    @Override
+    public boolean search(SearchContext context, int start, int goal, boolean checkDiagonals) {
+        if (!checkDiagonals || context.getGrid().hasCosts()) {
+            return fallback.search(context, start, goal, checkDiagonals);
+        }
+
+        Grid grid = context.getGrid();
+        int width = grid.getWidth();
+        int goalX = goal % width;
+        int goalY = goal / width;
+        OpenList openNodes = context.getOpenList();
+
+        context.reset();
+        context.update(start, 0, -1);
+        context.open(start, AStarSearch.findOctileDistance(start, goal, width));
+
+        while (!openNodes.isEmpty()) {
+            int current = openNodes.poll();
+
+            if (current == goal) {
+                buildPath(context, goal);
+                context.markOptimal();
+                return true;
+            }
+
+            context.markClosed(current);
+
+            int x = current % width;
+            int y = current / width;
+            int parent = context.getCameFrom(current);
+
+            if (parent == -1) {
+                // The start has no direction to prune by, so every neighbor is followed.
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (dx != 0 || dy != 0) {
+                            checkDirection(context, current, x, y, dx, dy, goalX, goalY);
+                        }
+                    }
+                }
+                continue;
+            }
+
+            int dx = Integer.signum(x - parent % width);
+            int dy = Integer.signum(y - parent / width);
+
+            if (dx != 0 && dy != 0) {
+                // Moving diagonally, the natural neighbors are the diagonal and both straights.
+                checkDirection(context, current, x, y, 0, dy, goalX, goalY);
+                checkDirection(context, current, x, y, dx, 0, goalX, goalY);
+                checkDirection(context, current, x, y, dx, dy, goalX, goalY);
+                // Forced neighbors, made reachable only through this cell by an obstacle behind it.
+                if (!isWalkable(grid, x - dx, y)) {
+                    checkDirection(context, current, x, y, -dx, dy, goalX, goalY);
+                }
+                if (!isWalkable(grid, x, y - dy)) {
+                    checkDirection(context, current, x, y, dx, -dy, goalX, goalY);
+                }
+            } else if (dx == 0) {
+                // Moving vertically.
+                checkDirection(context, current, x, y, 0, dy, goalX, goalY);
+                if (!isWalkable(grid, x + 1, y)) {
+                    checkDirection(context, current, x, y, 1, dy, goalX, goalY);
+                }
+                if (!isWalkable(grid, x - 1, y)) {
+                    checkDirection(context, current, x, y, -1, dy, goalX, goalY);
+                }
+            } else {
+                // Moving horizontally.
+                checkDirection(context, current, x, y, dx, 0, goalX, goalY);
+                if (!isWalkable(grid, x, y + 1)) {
+                    checkDirection(context, current, x, y, dx, 1, goalX, goalY);
+                }
+                if (!isWalkable(grid, x, y - 1)) {
+                    checkDirection(context, current, x, y, dx, -1, goalX, goalY);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Jumps from the current cell in a direction and opens the jump point it lands on, if any.
+     *
+     * @param context The context holding the search's values.
+     * @param current The id of the current cell.
+     * @param x       The X coordinate of the current cell.
+     * @param y       The Y coordinate of the current cell.
+     * @param dx      The X direction to jump in.
+     * @param dy      The Y direction to jump in.
+     * @param goalX   The X coordinate of the goal.
+     * @param goalY   The Y coordinate of the goal.
+     */
+    private void checkDirection(SearchContext context, int current, int x, int y, int dx, int dy,
+                                int goalX, int goalY) {
+        Grid grid = context.getGrid();
+        int jumpPoint = dx != 0 && dy != 0
+                ? jumpDiagonal(grid, x + dx, y + dy, dx, dy, goalX, goalY)
+                : jumpStraight(grid, x + dx, y + dy, dx, dy, goalX, goalY);
+        if (jumpPoint == -1 || context.isClosed(jumpPoint)) {
+            return;
+        }
+
+        int width = grid.getWidth();
+        int newGScore = context.getGScore(current) + AStarSearch.findOctileDistance(current, jumpPoint, width);
+        if (newGScore >= context.getGScore(jumpPoint)) {
+            return;
+        }
+
+        context.update(jumpPoint, newGScore, current);
+        int fScore = newGScore + AStarSearch.findOctileDistance(jumpPoint, goalY * width + goalX, width);
+        context.open(jumpPoint, fScore);
+    }
+
+    /**
+     * Steps diagonally from a cell until a jump point is found. A cell is a jump point if it is
+     * the goal, has a forced neighbor, or a straight jump from it finds a jump point.
+     *
+     * @param grid  The grid being searched.
+     * @param x     The X coordinate of the first cell of the jump.
+     * @param y     The Y coordinate of the first cell of the jump.
+     * @param dx    The X direction of the jump.
+     * @param dy    The Y direction of the jump.
+     * @param goalX The X coordinate of the goal.
+     * @param goalY The Y coordinate of the goal.
+     * @return The id of the jump point, or -1 if the jump runs into an obstacle or the edge.
+     */
+    private int jumpDiagonal(Grid grid, int x, int y, int dx, int dy, int goalX, int goalY) {
+        while (isWalkable(grid, x, y)) {
+            if (x == goalX && y == goalY) {
+                return grid.cellId(x, y);
+            }
+
+            boolean forced = (isWalkable(grid, x - dx, y + dy) && !isWalkable(grid, x - dx, y))
+                    || (isWalkable(grid, x + dx, y - dy) && !isWalkable(grid, x, y - dy));
+            if (forced
+                    || jumpStraight(grid, x + dx, y, dx, 0, goalX, goalY) != -1
+                    || jumpStraight(grid, x, y + dy, 0, dy, goalX, goalY) != -1) {
+                return grid.cellId(x, y);
+            }
+
+            x += dx;
+            y += dy;
+        }
+        return -1;
+    }
+
+    /**
+     * Steps horizontally or vertically from a cell until a jump point is found. A cell is a jump
+     * point if it is the goal or has a forced neighbor.
+     *
+     * @param grid  The grid being searched.
+     * @param x     The X coordinate of the first cell of the jump.
+     * @param y     The Y coordinate of the first cell of the jump.
+     * @param dx    The X direction of the jump.
+     * @param dy    The Y direction of the jump.
+     * @param goalX The X coordinate of the goal.
+     * @param goalY The Y coordinate of the goal.
+     * @return The id of the jump point, or -1 if the jump runs into an obstacle or the edge.
+     */
+    private int jumpStraight(Grid grid, int x, int y, int dx, int dy, int goalX, int goalY) {
+        while (isWalkable(grid, x, y)) {
+            if (x == goalX && y == goalY) {
+                return grid.cellId(x, y);
+            }
+
+            boolean forced;
+            if (dx != 0) {
+                forced = (isWalkable(grid, x + dx, y + 1) && !isWalkable(grid, x, y + 1))
+                        || (isWalkable(grid, x + dx, y - 1) && !isWalkable(grid, x, y - 1));
+            } else {
+                forced = (isWalkable(grid, x + 1, y + dy) && !isWalkable(grid, x + 1, y))
+                        || (isWalkable(grid, x - 1, y + dy) && !isWalkable(grid, x - 1, y));
+            }
+            if (forced) {
+                return grid.cellId(x, y);
+            }
+
+            x += dx;
+            y += dy;
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the path to the goal, filling in every cell between consecutive jump points.
+     *
+     * @param context The context holding the search's values.
+     * @param goal    The id of the goal cell.
+     */
+    private void buildPath(SearchContext context, int goal) {
+        int width = context.getGrid().getWidth();
+
+        int length = 1;
+        for (int current = goal; context.getCameFrom(current) != -1; current = context.getCameFrom(current)) {
+            length += steps(current, context.getCameFrom(current), width);
+        }
+
+        int[] path = context.pathBuffer(length);
+        int index = length - 1;
+        path[index] = goal;
+        for (int current = goal; context.getCameFrom(current) != -1; current = context.getCameFrom(current)) {
+            int parent = context.getCameFrom(current);
+            int dx = Integer.signum(parent % width - current % width);
+            int dy = Integer.signum(parent / width - current / width);
+            int step = dy * width + dx;
+            for (int cell = current + step; cell != parent; cell += step) {
+                path[--index] = cell;
+            }
+            path[--index] = parent;
+        }
+    }
+
+    /**
+     * Gets the number of steps on the straight or diagonal line between two jump points.
+     *
+     * @param a     The id of the first jump point.
+     * @param b     The id of the second jump point.
+     * @param width The width of the grid.
+     * @return The number of steps between them.
+     */
+    private static int steps(int a, int b, int width) {
+        return Math.max(Math.abs(a % width - b % width), Math.abs(a / width - b / width));
+    }
+
+    /**
+     * Is the cell at the given coordinates inside the grid and not an obstacle?
+     *
+     * @param grid The grid being searched.
+     * @param x    The X coordinate of the cell.
+     * @param y    The Y coordinate of the cell.
+     * @return True if the cell can be walked on, false otherwise.
+     */
+    private static boolean isWalkable(Grid grid, int x, int y) {
+        return x >= 0 && x < grid.getWidth() && y >= 0 && y < grid.getHeight()
+                && !grid.isObstacle(grid.cellId(x, y));
+    }
+}
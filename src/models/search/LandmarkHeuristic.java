@@ -0,0 +1,305 @@
+package models.search;
+
+import models.Grid;
+
+import java.nio.IntBuffer;
+
+/**
+ * A heuristic using precomputed distances from a few landmark cells (ALT). By the triangle
+ * inequality, a path from a cell to the goal costs at least the difference of their distances to
+ * any landmark, which unlike a geometric distance accounts for the walls between them. Searches
+ * on maps with dead ends or long detours expand far fewer cells with it.
+ * <p>
+ * The distances are only valid for the grid as it was when they were worked out, so this is
+ * meant for static maps. After the grid changes, build the heuristic again. Distances worked out
+ * with diagonal steps are admissible for searches with and without them, but distances worked out
+ * without diagonal steps overestimate for searches with them.
+ * <p>
+ * The distances are kept in one int array, with the distances from every landmark to a cell next
+ * to each other, so estimating a cell reads one or two cache lines. They can be saved with
+ * {@link models.io.LandmarkFile} so they don't have to be worked out again.
+ */
+public class LandmarkHeuristic implements Heuristic {
+    /**
+     * The distance to a cell that can not be reached from the landmark.
+     */
+    public static final int UNREACHABLE = DistanceField.UNREACHABLE;
+
+    /**
+     * The size of the grid the distances were worked out on.
+     */
+    private final int width, height;
+
+    /**
+     * Were diagonal steps allowed when the distances were worked out?
+     */
+    private final boolean checkDiagonals;
+
+    /**
+     * The ids of the landmark cells.
+     */
+    private final int[] landmarks;
+
+    /**
+     * The distance from every landmark to every cell, at {@code cell * landmarks.length + landmark}.
+     */
+    private final int[] distances;
+
+    /**
+     * Creates a heuristic from distances that were already worked out, for example read from a
+     * file.
+     *
+     * @param width          The width of the grid.
+     * @param height         The height of the grid.
+     * @param checkDiagonals True if diagonal steps were allowed, false otherwise.
+     * @param landmarks      The ids of the landmark cells.
+     * @param distances      The distance from every landmark to every cell, at
+     *                       {@code cell * landmarks.length + landmark}.
+     */
+    public LandmarkHeuristic(int width, int height, boolean checkDiagonals, int[] landmarks, int[] distances) {
+        if ((long) width * height * landmarks.length != distances.length) {
+            throw new IllegalArgumentException("Expected " + (long) width * height * landmarks.length
+                    + " distances, but got " + distances.length + ".");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.checkDiagonals = checkDiagonals;
+        this.landmarks = landmarks.clone();
+        this.distances = distances;
+    }
+
+    /**
+     * Picks landmarks on a grid and works out their distances, one landmark per thread of the
+     * common fork join pool. The grid must not change while this runs.
+     *
+     * @param grid           The grid to work out the distances on.
+     * @param count          The number of landmarks to pick. More landmarks give tighter estimates,
+     *                       but take more memory and time for each estimate.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The heuristic.
+     */
+    public static LandmarkHeuristic build(Grid grid, int count, boolean checkDiagonals) {
+        int cells = grid.getWidth() * grid.getHeight();
+        if (count <= 0 || (long) cells * count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Can not keep " + count + " landmarks for " + cells + " cells.");
+        }
+
+        int[] landmarks = selectLandmarks(grid, count);
+        int[][] tables = DistanceField.computeAll(grid, landmarks, checkDiagonals);
+
+        // Interleave the tables so the distances of a cell are next to each other.
+        int[] distances = new int[cells * landmarks.length];
+        for (int i = 0; i < landmarks.length; i++) {
+            int[] table = tables[i];
+            for (int cell = 0, index = i; cell < cells; cell++, index += landmarks.length) {
+                distances[index] = table[cell];
+            }
+        }
+        return new LandmarkHeuristic(grid.getWidth(), grid.getHeight(), checkDiagonals, landmarks, distances);
+    }
+
+    /**
+     * Picks landmarks spread evenly around the edge of a grid. Landmarks behind the cells being
+     * searched, as seen from the goal, give the tightest estimates, and cells on the edge are
+     * behind the most cells. Each landmark is the open cell closest to its place on the edge.
+     *
+     * @param grid  The grid to pick the landmarks on.
+     * @param count The number of landmarks to pick.
+     * @return The ids of the landmarks. There are fewer than asked for if the grid has too few
+     *         open cells.
+     */
+    public static int[] selectLandmarks(Grid grid, int count) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        long perimeter = 2L * (width + height);
+        IntList landmarks = new IntList(count);
+
+        for (int i = 0; i < count; i++) {
+            // Walk clockwise around the edge from the top left corner.
+            long position = perimeter * i / count;
+            int x, y;
+            if (position < width) {
+                x = (int) position;
+                y = 0;
+            } else if (position < width + height) {
+                x = width - 1;
+                y = (int) (position - width);
+            } else if (position < 2L * width + height) {
+                x = (int) (2L * width + height - 1 - position);
+                y = height - 1;
+            } else {
+                x = 0;
+                y = (int) (perimeter - 1 - position);
+            }
+
+            int landmark = findClosestOpenCell(grid, x, y);
+            if (landmark != -1 && !contains(landmarks, landmark)) {
+                landmarks.add(landmark);
+            }
+        }
+        return landmarks.toArray();
+    }
+
+    /**
+     * Finds the open cell closest to a position, searching outwards in growing squares.
+     *
+     * @param grid The grid to search.
+     * @param x    The X coordinate of the position.
+     * @param y    The Y coordinate of the position.
+     * @return The id of the closest open cell, or -1 if every cell is an obstacle.
+     */
+    private static int findClosestOpenCell(Grid grid, int x, int y) {
+        int maxRadius = Math.max(grid.getWidth(), grid.getHeight());
+        for (int radius = 0; radius < maxRadius; radius++) {
+            int minY = Math.max(0, y - radius);
+            int maxY = Math.min(grid.getHeight() - 1, y + radius);
+            int minX = Math.max(0, x - radius);
+            int maxX = Math.min(grid.getWidth() - 1, x + radius);
+            for (int cy = minY; cy <= maxY; cy++) {
+                if (Math.abs(cy - y) == radius) {
+                    // The top and bottom rows of the square are new.
+                    for (int cx = minX; cx <= maxX; cx++) {
+                        if (!grid.isObstacle(grid.cellId(cx, cy))) {
+                            return grid.cellId(cx, cy);
+                        }
+                    }
+                } else {
+                    // Of the rows between, only the left and right ends are new.
+                    if (x - radius >= 0 && !grid.isObstacle(grid.cellId(x - radius, cy))) {
+                        return grid.cellId(x - radius, cy);
+                    }
+                    if (x + radius <= maxX && !grid.isObstacle(grid.cellId(x + radius, cy))) {
+                        return grid.cellId(x + radius, cy);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a list holds a value.
+     *
+     * @param list  The list.
+     * @param value The value to look for.
+     * @return True if the value is in the list, false otherwise.
+     */
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Estimates the cost between two cells from how far apart they are, without the landmarks.
+     *
+     * @param xDiff The distance between the cells along the X axis, at least 0.
+     * @param yDiff The distance between the cells along the Y axis, at least 0.
+     * @return The octile distance between the cells.
+     */
+    @Override
+    public int estimate(int xDiff, int yDiff) {
+        return Heuristics.OCTILE.estimate(xDiff, yDiff);
+    }
+
+    /**
+     * Estimates the cost from a cell to the goal, as the largest difference of their distances to
+     * a landmark, or the octile distance if that is larger.
+     *
+     * @param cell  The id of the cell.
+     * @param goal  The id of the goal cell.
+     * @param xDiff The distance between the cells along the X axis, at least 0.
+     * @param yDiff The distance between the cells along the Y axis, at least 0.
+     * @return The estimated cost.
+     */
+    @Override
+    public int estimate(int cell, int goal, int xDiff, int yDiff) {
+        int count = landmarks.length;
+        int cellIndex = cell * count;
+        int goalIndex = goal * count;
+        int bound = Heuristics.OCTILE.estimate(xDiff, yDiff);
+        for (int i = 0; i < count; i++) {
+            int toCell = distances[cellIndex + i];
+            int toGoal = distances[goalIndex + i];
+            // The mask is zero if either cell can not be reached from the landmark, which tells
+            // nothing about the distance between them.
+            int mask = ~((toCell | toGoal) >> 31);
+            bound = Math.max(bound, Math.abs(toGoal - toCell) & mask);
+        }
+        return bound;
+    }
+
+    /**
+     * Does this heuristic never overestimate? Distances worked out with diagonal steps never do,
+     * while those worked out without them overestimate once diagonal steps are allowed. Either
+     * only holds while the grid's walls and costs are those the distances were worked out on.
+     *
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return True if the estimate never exceeds the real cost, false otherwise.
+     */
+    @Override
+    public boolean isAdmissible(boolean checkDiagonals) {
+        return this.checkDiagonals || !checkDiagonals;
+    }
+
+    /**
+     * Gets the width of the grid the distances were worked out on.
+     *
+     * @return The width of the grid.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the grid the distances were worked out on.
+     *
+     * @return The height of the grid.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Were diagonal steps allowed when the distances were worked out?
+     *
+     * @return True if diagonal steps were allowed, false otherwise.
+     */
+    public boolean isCheckDiagonals() {
+        return checkDiagonals;
+    }
+
+    /**
+     * Gets the ids of the landmark cells.
+     *
+     * @return A copy of the landmark ids.
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Gets the distance from a landmark to a cell.
+     *
+     * @param landmark The index of the landmark.
+     * @param cell     The id of the cell.
+     * @return The distance, or {@link #UNREACHABLE} if the cell can not be reached.
+     */
+    public int getDistance(int landmark, int cell) {
+        return distances[cell * landmarks.length + landmark];
+    }
+
+    /**
+     * Gets a read only view of the distance table, with the distances from every landmark to a
+     * cell at {@code cell * landmarks + landmark}.
+     *
+     * @return The distances.
+     */
+    public IntBuffer getDistanceTable() {
+        return IntBuffer.wrap(distances).asReadOnlyBuffer();
+    }
+}
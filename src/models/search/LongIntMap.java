@@ -0,0 +1,121 @@
+package models.search;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from longs to ints without boxing, using open addressing with linear probing. Keys
+ * must not be negative. Entries can not be removed one by one, only all at once.
+ */
+class LongIntMap {
+    /**
+     * The key of an empty slot.
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * The keys of the entries, and the value of each one.
+     */
+    private long[] keys;
+    private int[] values;
+
+    /**
+     * The number of entries, and the number of bits of a slot index.
+     */
+    private int size, bits;
+
+    /**
+     * Creates a new, empty map.
+     *
+     * @param expected The number of entries the map can hold before it has to grow.
+     */
+    LongIntMap(int expected) {
+        bits = Math.max(4, 32 - Integer.numberOfLeadingZeros(Math.max(1, expected * 2 - 1)));
+        keys = new long[1 << bits];
+        values = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key     The key, at least 0.
+     * @param missing The value to return if the key is not in the map.
+     * @return The value, or the missing value.
+     */
+    int get(long key, int missing) {
+        int slot = find(key);
+        return keys[slot] == EMPTY ? missing : values[slot];
+    }
+
+    /**
+     * Sets the value of a key, adding the key if it is not in the map.
+     *
+     * @param key   The key, at least 0.
+     * @param value The value.
+     */
+    void put(long key, int value) {
+        if (size * 2 >= keys.length) {
+            grow();
+        }
+
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Removes every entry, keeping the memory of the map.
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Finds the slot holding a key, or the empty slot it would go into.
+     *
+     * @param key The key.
+     * @return The index of the slot.
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        // Multiplying by the golden ratio spreads keys that only differ in a few bits.
+        int slot = (int) (key * 0x9E3779B97F4A7C15L >>> (64 - bits));
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the number of slots and puts every entry back in.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        bits++;
+        keys = new long[1 << bits];
+        values = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package models.search;
+
+/**
+ * The open list of a search, holding the cells that are waiting to be expanded ordered by their
+ * key (usually the F score). Cells are identified by their cell id in the grid.
+ * <p>
+ * A {@link SearchContext} creates its open list from an {@link OpenListType}, and a grid's
+ * searches switch to another kind with {@link models.Grid#setOpenListType(OpenListType)}.
+ */
+public interface OpenList {
+    /**
+     * Is the open list empty?
+     *
+     * @return True if there are no cells in the open list, false otherwise.
+     */
+    boolean isEmpty();
+
+    /**
+     * Gets the number of cells in the open list.
+     *
+     * @return The number of cells in the open list.
+     */
+    int size();
+
+    /**
+     * Is the given cell in the open list?
+     *
+     * @param id The id of the cell.
+     * @return True if the cell is in the open list, false otherwise.
+     */
+    boolean contains(int id);
+
+    /**
+     * Adds a cell that is not in the open list yet.
+     *
+     * @param id  The id of the cell.
+     * @param key The key of the cell.
+     */
+    void push(int id, int key);
+
+    /**
+     * Adds a cell that is not in the open list yet, with its G Score to break ties: of the cells
+     * with the same key, the one with the highest G Score comes out first, as it is likely the
+     * closest to the goal. Open lists that do not break ties ignore the G Score.
+     *
+     * @param id     The id of the cell.
+     * @param key    The key of the cell.
+     * @param gScore The G Score of the cell.
+     */
+    default void push(int id, int key, int gScore) {
+        push(id, key);
+    }
+
+    /**
+     * Lowers the key of a cell that is already in the open list.
+     *
+     * @param id  The id of the cell.
+     * @param key The new key of the cell, which must not be greater than its current key.
+     */
+    void decreaseKey(int id, int key);
+
+    /**
+     * Lowers the key of a cell that is already in the open list, and sets the G Score that breaks
+     * its ties, as {@link #push(int, int, int)} does.
+     *
+     * @param id     The id of the cell.
+     * @param key    The new key of the cell, which must not be greater than its current key.
+     * @param gScore The new G Score of the cell.
+     */
+    default void decreaseKey(int id, int key, int gScore) {
+        decreaseKey(id, key);
+    }
+
+    /**
+     * Gets the cell with the lowest key without removing it from the open list.
+     *
+     * @return The id of the cell with the lowest key.
+     */
+    int peek();
+
+    /**
+     * Removes the cell with the lowest key from the open list.
+     *
+     * @return The id of the cell with the lowest key.
+     */
+    int poll();
+
+    /**
+     * Removes every cell from the open list.
+     */
+    void clear();
+}
@@ -0,0 +1,35 @@
+package models.search;
+
+/**
+ * The kinds of open list a {@link SearchContext} can use.
+ */
+public enum OpenListType {
+    /**
+     * An {@link IndexedBinaryHeap}, which takes O(log n) time per cell whatever the keys are.
+     */
+    BINARY_HEAP {
+        @Override
+        public OpenList create(int cells) {
+            return new IndexedBinaryHeap(cells);
+        }
+    },
+
+    /**
+     * A {@link BucketQueue}, which takes O(1) time per cell when the keys are integer F Scores
+     * that rise as the search goes on, and breaks ties towards the highest G Score.
+     */
+    BUCKET_QUEUE {
+        @Override
+        public OpenList create(int cells) {
+            return new BucketQueue(cells);
+        }
+    };
+
+    /**
+     * Creates an empty open list of this kind.
+     *
+     * @param cells The number of cells in the grid, every cell id must be below this.
+     * @return The open list.
+     */
+    public abstract OpenList create(int cells);
+}
@@ -0,0 +1,20 @@
+package models.search;
+
+import models.Grid;
+
+/**
+ * Turns a path found by a search into one that is cheaper to store or to follow, for example by
+ * dropping cells an agent can walk past without turning. See {@link PathProcessors} for the built
+ * in stages.
+ */
+public interface PathProcessor {
+    /**
+     * Processes a path.
+     *
+     * @param grid The grid the path was found on.
+     * @param path The cell ids on the path from start to goal. It is not changed.
+     * @return The waypoints of the processed path from start to goal, which always keeps the
+     *         start and the goal.
+     */
+    int[] process(Grid grid, int[] path);
+}
@@ -0,0 +1,71 @@
+package models.search;
+
+import models.Grid;
+
+import java.util.Arrays;
+
+/**
+ * The built in path processors. Both keep only some of the cells of a path as waypoints, so an
+ * agent walks in a straight line from one waypoint to the next, and only has to steer at each
+ * waypoint rather than at every cell.
+ */
+public enum PathProcessors implements PathProcessor {
+    /**
+     * Keeps only the cells where the path turns. Walking straight between the waypoints visits
+     * exactly the cells of the original path, so it costs the same.
+     */
+    REMOVE_COLLINEAR {
+        @Override
+        public int[] process(Grid grid, int[] path) {
+            if (path.length <= 2) {
+                return path.clone();
+            }
+
+            int width = grid.getWidth();
+            int[] waypoints = new int[path.length];
+            int count = 0;
+            waypoints[count++] = path[0];
+            for (int i = 1; i < path.length - 1; i++) {
+                // The path goes straight through a cell if it steps into it and out of it the same
+                // way.
+                int inX = path[i] % width - path[i - 1] % width;
+                int inY = path[i] / width - path[i - 1] / width;
+                int outX = path[i + 1] % width - path[i] % width;
+                int outY = path[i + 1] / width - path[i] / width;
+                if (inX != outX || inY != outY) {
+                    waypoints[count++] = path[i];
+                }
+            }
+            waypoints[count++] = path[path.length - 1];
+            return Arrays.copyOf(waypoints, count);
+        }
+    },
+
+    /**
+     * Pulls the path tight like a string. Starting from the cells where the path turns, a turn is
+     * only kept if the next one can not be seen from the last waypoint kept, so the result never
+     * has more waypoints than {@link #REMOVE_COLLINEAR}. Waypoints are joined at any angle, so
+     * this is for agents that can move in any direction. Lines are checked with
+     * {@link Grid#hasLineOfSight(int, int)}. Cell costs are not looked at, so on grids
+     * with costs a pulled line may cross expensive cells the original path went around.
+     */
+    STRING_PULL {
+        @Override
+        public int[] process(Grid grid, int[] path) {
+            int[] turns = REMOVE_COLLINEAR.process(grid, path);
+            if (turns.length <= 2) {
+                return turns;
+            }
+
+            // Only the turns are kept or dropped, and the waypoints are written over them.
+            int count = 1;
+            for (int i = 1; i < turns.length - 1; i++) {
+                if (!grid.hasLineOfSight(turns[count - 1], turns[i + 1])) {
+                    turns[count++] = turns[i];
+                }
+            }
+            turns[count++] = turns[turns.length - 1];
+            return Arrays.copyOf(turns, count);
+        }
+    };
+}
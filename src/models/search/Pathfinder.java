@@ -0,0 +1,20 @@
+package models.search;
+
+/**
+ * An algorithm that finds a path between two cells of a grid. A pathfinder keeps all of a
+ * search's values in the {@link SearchContext} it is given, so one pathfinder can be used by many
+ * threads at once as long as each has its own context.
+ */
+public interface Pathfinder {
+    /**
+     * Searches for a path from a start cell to a goal cell. If a path is found it is kept in the
+     * context, as every cell from the start to the goal.
+     *
+     * @param context        The context holding the search's values.
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return True if a path was found, false otherwise.
+     */
+    boolean search(SearchContext context, int start, int goal, boolean checkDiagonals);
+}
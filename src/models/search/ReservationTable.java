@@ -0,0 +1,125 @@
+package models.search;
+
+/**
+ * Records which agent holds which cell at which time step, so agents planning one after another
+ * can avoid the paths of the agents planned before them.
+ * <p>
+ * Reservations live in an open addressing hash table of primitive longs, with the time step in the
+ * upper half of a key and the cell id in the lower half, so a reservation takes at most 24 bytes
+ * and no objects. Reservations can not be removed one by one, only all at once with
+ * {@link #clear()}, which keeps the table's memory for the next round of planning.
+ */
+public class ReservationTable {
+    /**
+     * The agent of a cell that no agent holds.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The agent holding each reservation, by key.
+     */
+    private final LongIntMap agents;
+
+    /**
+     * Creates a new, empty table.
+     *
+     * @param expected The number of reservations the table can hold before it has to grow.
+     */
+    public ReservationTable(int expected) {
+        agents = new LongIntMap(expected);
+    }
+
+    /**
+     * Reserves a cell at a time step for an agent, unless another agent already holds it. A
+     * reservation is never taken over, since the agent holding it already counts on it.
+     *
+     * @param cell  The id of the cell.
+     * @param time  The time step, at least 0.
+     * @param agent The id of the agent, at least 0.
+     * @return True if the agent holds the cell now, false if another agent does.
+     */
+    public boolean reserve(int cell, int time, int agent) {
+        long key = key(cell, time);
+        int holder = agents.get(key, NONE);
+        if (holder != NONE) {
+            return holder == agent;
+        }
+
+        agents.put(key, agent);
+        return true;
+    }
+
+    /**
+     * Gets the agent holding a cell at a time step.
+     *
+     * @param cell The id of the cell.
+     * @param time The time step.
+     * @return The id of the agent, or {@link #NONE} if the cell is free.
+     */
+    public int getAgent(int cell, int time) {
+        return agents.get(key(cell, time), NONE);
+    }
+
+    /**
+     * Can an agent be at a cell at a time step, because nobody else holds it?
+     *
+     * @param cell  The id of the cell.
+     * @param time  The time step.
+     * @param agent The id of the agent.
+     * @return True if the cell is free or held by the agent itself, false otherwise.
+     */
+    public boolean isFree(int cell, int time, int agent) {
+        int holder = getAgent(cell, time);
+        return holder == NONE || holder == agent;
+    }
+
+    /**
+     * Can an agent step from one cell to another, or wait if both are the same, between a time
+     * step and the next? It can not if another agent holds the cell it steps into, or if another
+     * agent steps the other way at the same time, since they would pass through each other.
+     *
+     * @param from  The id of the cell the agent is at.
+     * @param to    The id of the cell the agent steps into.
+     * @param time  The time step the agent leaves at.
+     * @param agent The id of the agent.
+     * @return True if the step is free, false otherwise.
+     */
+    public boolean canMove(int from, int to, int time, int agent) {
+        if (!isFree(to, time + 1, agent)) {
+            return false;
+        }
+        if (from == to) {
+            return true;
+        }
+
+        int other = getAgent(to, time);
+        return other == NONE || other == agent || getAgent(from, time + 1) != other;
+    }
+
+    /**
+     * Removes every reservation, keeping the memory of the table.
+     */
+    public void clear() {
+        agents.clear();
+    }
+
+    /**
+     * Gets the number of reservations.
+     *
+     * @return The number of reservations.
+     */
+    public int size() {
+        return agents.size();
+    }
+
+    /**
+     * Packs a cell and a time step into a key.
+     *
+     * @param cell The id of the cell.
+     * @param time The time step.
+     * @return The key.
+     */
+    private static long key(int cell, int time) {
+        return (long) time << 32 | cell;
+    }
+}
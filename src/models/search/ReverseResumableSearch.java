@@ -0,0 +1,198 @@
+package models.search;
+
+import models.Grid;
+
+import java.util.Arrays;
+
+/**
+ * Works out the true cost from cells to a goal on demand, for the heuristic of
+ * {@link CooperativePlanner} (Reverse Resumable A*).
+ * <p>
+ * An A* search runs backwards from the goal towards the cell an agent started at, and pauses as
+ * soon as the cell asked for is expanded. Asking for a cell the search has not reached yet
+ * resumes it from where it paused. A consistent heuristic gives every expanded cell its true
+ * cost, so the answers stay exact whichever cells are asked for. Only the cells reached are kept,
+ * which is usually a narrow band around the agent's path rather than the whole grid.
+ */
+class ReverseResumableSearch {
+    /**
+     * The grid being searched.
+     */
+    private final Grid grid;
+
+    /**
+     * Are diagonal steps allowed?
+     */
+    private final boolean checkDiagonals;
+
+    /**
+     * The cell the search runs towards, which the heuristic measures to.
+     */
+    private final int target;
+
+    /**
+     * The best known cost of every cell reached, and the final cost of every cell expanded. Both
+     * are keyed by cell id.
+     */
+    private final LongIntMap gScores, distances;
+
+    /**
+     * The cells waiting to be expanded, as their F Score in the upper half and their id in the
+     * lower half. A cell is added again when its cost drops, and the outdated copies are skipped.
+     */
+    private long[] open;
+    private int openSize;
+
+    /**
+     * Starts a new search from a goal. No cells are expanded until a distance is asked for.
+     *
+     * @param grid           The grid to search.
+     * @param goal           The id of the goal cell.
+     * @param target         The id of the cell to search towards, usually where the agent is.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     */
+    ReverseResumableSearch(Grid grid, int goal, int target, boolean checkDiagonals) {
+        this.grid = grid;
+        this.target = target;
+        this.checkDiagonals = checkDiagonals;
+        gScores = new LongIntMap(64);
+        distances = new LongIntMap(64);
+        open = new long[64];
+
+        if (!grid.isObstacle(goal)) {
+            gScores.put(goal, 0);
+            push(goal, estimate(goal));
+        }
+    }
+
+    /**
+     * Gets the cost of the cheapest path from a cell to the goal, resuming the search until the
+     * cell is expanded.
+     *
+     * @param cell The id of the cell.
+     * @return The cost, or {@link DistanceField#UNREACHABLE} if the cell is an obstacle or can not
+     *         reach the goal.
+     */
+    int distance(int cell) {
+        int known = distances.get(cell, DistanceField.UNREACHABLE);
+        if (known != DistanceField.UNREACHABLE || grid.isObstacle(cell)) {
+            return known;
+        }
+
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        while (openSize > 0) {
+            long entry = poll();
+            int current = (int) entry;
+            int gScore = gScores.get(current, Integer.MAX_VALUE);
+            if (distances.get(current, DistanceField.UNREACHABLE) != DistanceField.UNREACHABLE
+                    || (int) (entry >>> 32) != gScore + estimate(current)) {
+                continue;
+            }
+            distances.put(current, gScore);
+
+            int x = current % width;
+            int y = current / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if ((dx == 0 && dy == 0) || (!checkDiagonals && dx != 0 && dy != 0) || nx < 0 || nx >= width
+                            || ny < 0 || ny >= height) {
+                        continue;
+                    }
+
+                    int neighbor = ny * width + nx;
+                    if (grid.isObstacle(neighbor)) {
+                        continue;
+                    }
+
+                    int newGScore = gScore + grid.getStepCost(current, neighbor,
+                            dx != 0 && dy != 0 ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+                    if (newGScore < gScores.get(neighbor, Integer.MAX_VALUE)) {
+                        gScores.put(neighbor, newGScore);
+                        push(neighbor, newGScore + estimate(neighbor));
+                    }
+                }
+            }
+
+            if (current == cell) {
+                return gScore;
+            }
+        }
+        return DistanceField.UNREACHABLE;
+    }
+
+    /**
+     * Gets the number of cells the search has reached, as a measure of the memory it uses.
+     *
+     * @return The number of cells.
+     */
+    int size() {
+        return gScores.size();
+    }
+
+    /**
+     * Estimates the cost from the target to a cell.
+     *
+     * @param cell The id of the cell.
+     * @return The octile distance, or the Manhattan distance without diagonal steps.
+     */
+    private int estimate(int cell) {
+        int width = grid.getWidth();
+        int xDiff = Math.abs(cell % width - target % width);
+        int yDiff = Math.abs(cell / width - target / width);
+        return (checkDiagonals ? Heuristics.OCTILE : Heuristics.MANHATTAN).estimate(xDiff, yDiff);
+    }
+
+    /**
+     * Adds a cell to the binary heap of open cells.
+     *
+     * @param cell   The id of the cell.
+     * @param fScore The F Score of the cell.
+     */
+    private void push(int cell, int fScore) {
+        if (openSize == open.length) {
+            open = Arrays.copyOf(open, openSize * 2);
+        }
+
+        long entry = (long) fScore << 32 | cell;
+        int position = openSize++;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (open[parent] <= entry) {
+                break;
+            }
+            open[position] = open[parent];
+            position = parent;
+        }
+        open[position] = entry;
+    }
+
+    /**
+     * Removes the open cell with the lowest F Score from the heap.
+     *
+     * @return The F Score and id of the cell.
+     */
+    private long poll() {
+        long top = open[0];
+        long last = open[--openSize];
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= openSize) {
+                break;
+            }
+            if (child + 1 < openSize && open[child + 1] < open[child]) {
+                child++;
+            }
+            if (open[child] >= last) {
+                break;
+            }
+            open[position] = open[child];
+            position = child;
+        }
+        open[position] = last;
+        return top;
+    }
+}
@@ -0,0 +1,528 @@
+package models.search;
+
+import models.Grid;
+
+import java.util.Arrays;
+
+/**
+ * The buffers a search needs, kept between searches so that running a search does not allocate.
+ * <p>
+ * Instead of resetting every cell after a search, each cell is stamped with the generation of
+ * the search that last wrote to it. Starting a new search bumps the generation, which makes the
+ * values of every cell stale at once. A context is not thread safe, every thread should use its
+ * own.
+ */
+public class SearchContext {
+    /**
+     * The grid searched with this context.
+     */
+    private final Grid grid;
+
+    /**
+     * The G Score of every cell, and the id of the cell it came from (-1 for the start). These
+     * are only valid if the cell's mark is from the current generation.
+     */
+    private final int[] gScores, cameFrom;
+
+    /**
+     * The generation each cell was last seen in. A cell is open (or waiting to be opened) in the
+     * current search if its mark equals the generation and closed if it equals the generation
+     * plus one.
+     */
+    private final int[] marks;
+
+    /**
+     * The generation of the current search, always even.
+     */
+    private int generation;
+
+    /**
+     * The open list of the search, and its kind, or null if it was given to the constructor.
+     */
+    private final OpenList openList;
+    private final OpenListType openListType;
+
+    /**
+     * The path found by the last search, from start to goal.
+     */
+    private int[] path;
+    private int pathLength;
+
+    /**
+     * What the current search has done so far: the cells it expanded, the cells it pushed onto
+     * the open list, how often it lowered the key of an open cell, and the most cells that were
+     * open at once. These are cleared by {@link #run}, not by {@link #reset()}, so searches that
+     * reset the context several times, like {@link HierarchicalPathfinder}, are counted as a whole.
+     */
+    private int expandedCount, pushCount, decreaseKeyCount, maxOpenSize;
+
+    /**
+     * Did the last search find a path, and how long did it take in nanoseconds?
+     */
+    private boolean found;
+    private long wallTime;
+
+    /**
+     * Told about every search run with {@link #run}, or null to skip the callback.
+     */
+    private SearchListener listener;
+
+    /**
+     * Turns down queries between cells that can not reach each other, or null to always search.
+     */
+    private ComponentIndex componentIndex;
+
+    /**
+     * The context of the search from the goal in a bidirectional search, or null until one runs.
+     */
+    private SearchContext reverseContext;
+
+    /**
+     * Heaps for searches that keep their open cells in more than one order, created the first time
+     * they are asked for.
+     */
+    private IndexedBinaryHeap[] extraHeaps = new IndexedBinaryHeap[0];
+
+    /**
+     * The least the cheapest path can cost, as proven by the current search, or -1 if it is not
+     * known.
+     */
+    private int lowerBound;
+
+    /**
+     * Did the current search find the cheapest path?
+     */
+    private boolean optimal;
+
+    /**
+     * Creates a new search context using a binary heap as the open list.
+     *
+     * @param grid The grid that will be searched.
+     */
+    public SearchContext(Grid grid) {
+        this(grid, OpenListType.BINARY_HEAP);
+    }
+
+    /**
+     * Creates a new search context using the given kind of open list.
+     *
+     * @param grid         The grid that will be searched.
+     * @param openListType The kind of open list to use.
+     */
+    public SearchContext(Grid grid, OpenListType openListType) {
+        this(grid, openListType.create(grid.getWidth() * grid.getHeight()), openListType);
+    }
+
+    /**
+     * Creates a new search context.
+     *
+     * @param grid     The grid that will be searched.
+     * @param openList The open list to use, which must be able to hold every cell of the grid.
+     */
+    public SearchContext(Grid grid, OpenList openList) {
+        this(grid, openList, null);
+    }
+
+    /**
+     * Creates a new search context.
+     *
+     * @param grid         The grid that will be searched.
+     * @param openList     The open list to use, which must be able to hold every cell of the grid.
+     * @param openListType The kind of the open list, or null if it is not one of the built in kinds.
+     */
+    private SearchContext(Grid grid, OpenList openList, OpenListType openListType) {
+        int cells = grid.getWidth() * grid.getHeight();
+        this.grid = grid;
+        this.openList = openList;
+        this.openListType = openListType;
+        gScores = new int[cells];
+        cameFrom = new int[cells];
+        marks = new int[cells];
+        generation = 2;
+        path = new int[64];
+    }
+
+    /**
+     * Starts a new search, making the values from the last search stale in O(1) time.
+     */
+    public void reset() {
+        generation += 2;
+        if (generation < 0) {
+            // The generation has wrapped around, so old marks could look current again.
+            Arrays.fill(marks, 0);
+            generation = 2;
+        }
+
+        openList.clear();
+        pathLength = 0;
+    }
+
+    /**
+     * Runs a search in this context, timing it and counting what it does. Once it is done the
+     * listener is told, if there is one, and {@link #getStats()} describes the search.
+     *
+     * @param pathfinder     The search algorithm to run.
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return True if a path was found, false otherwise.
+     */
+    public boolean run(Pathfinder pathfinder, int start, int goal, boolean checkDiagonals) {
+        clearCounts();
+
+        long startTime = System.nanoTime();
+        if (componentIndex != null && !componentIndex.isReachable(start, goal, checkDiagonals)) {
+            // The goal is in another component, so searching would only exhaust the start's.
+            reset();
+            found = false;
+        } else {
+            found = pathfinder.search(this, start, goal, checkDiagonals);
+        }
+        wallTime = System.nanoTime() - startTime;
+
+        // Only build the stats when someone is listening, so an unused hook costs one null check.
+        if (listener != null) {
+            listener.searchFinished(getStats());
+        }
+        return found;
+    }
+
+    /**
+     * Clears what the current search has counted so far.
+     */
+    void clearCounts() {
+        expandedCount = 0;
+        pushCount = 0;
+        decreaseKeyCount = 0;
+        maxOpenSize = 0;
+        lowerBound = -1;
+        optimal = false;
+    }
+
+    /**
+     * Records the cost the cheapest path costs at least, for searches that may find a dearer path.
+     * {@link #getStats()} reports how far the path found can be from the cheapest one from it.
+     *
+     * @param lowerBound The lower bound on the cost of the cheapest path.
+     */
+    void setLowerBound(int lowerBound) {
+        this.lowerBound = lowerBound;
+    }
+
+    /**
+     * Records that the current search found the cheapest path, so {@link #getStats()} reports the
+     * path's own cost as the lower bound. Searches that call neither this nor
+     * {@link #setLowerBound(int)} leave the bound unknown.
+     */
+    void markOptimal() {
+        optimal = true;
+    }
+
+    /**
+     * Adds what a search in another context counted to the counts of this context, for searches
+     * that run part of their work in a second context. Both open lists are alive at the same time,
+     * so their largest sizes are added up too.
+     *
+     * @param other The other context.
+     */
+    void addCounts(SearchContext other) {
+        expandedCount += other.expandedCount;
+        pushCount += other.pushCount;
+        decreaseKeyCount += other.decreaseKeyCount;
+        maxOpenSize += other.maxOpenSize;
+    }
+
+    /**
+     * Gets a second context on the same grid, for searches that run two searches at once. It is
+     * only created the first time it is asked for, and kept from then on.
+     *
+     * @return The second context.
+     */
+    SearchContext getReverseContext() {
+        if (reverseContext == null) {
+            reverseContext = openListType != null ? new SearchContext(grid, openListType) : new SearchContext(grid);
+        }
+        return reverseContext;
+    }
+
+    /**
+     * Gets an empty heap holding as many cells as the grid, for searches that keep their open
+     * cells in more than one order. The heap is kept from then on, and it is the same heap every
+     * time it is asked for by index.
+     *
+     * @param index The index of the heap, from 0.
+     * @return The heap, cleared.
+     */
+    IndexedBinaryHeap getExtraHeap(int index) {
+        if (index >= extraHeaps.length) {
+            extraHeaps = Arrays.copyOf(extraHeaps, index + 1);
+        }
+        if (extraHeaps[index] == null) {
+            extraHeaps[index] = new IndexedBinaryHeap(grid.getWidth() * grid.getHeight());
+        }
+        extraHeaps[index].clear();
+        return extraHeaps[index];
+    }
+
+    /**
+     * Gets the grid searched with this context.
+     *
+     * @return The grid.
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Gets the open list of the search.
+     *
+     * @return The open list.
+     */
+    public OpenList getOpenList() {
+        return openList;
+    }
+
+    /**
+     * Gets the kind of open list of the search.
+     *
+     * @return The kind, or null if the open list was given to the constructor.
+     */
+    public OpenListType getOpenListType() {
+        return openListType;
+    }
+
+    /**
+     * Has the given cell been reached by the current search?
+     *
+     * @param id The id of the cell.
+     * @return True if the cell is open or closed, false otherwise.
+     */
+    public boolean isSeen(int id) {
+        return marks[id] >= generation;
+    }
+
+    /**
+     * Has the given cell been expanded by the current search?
+     *
+     * @param id The id of the cell.
+     * @return True if the cell is closed, false otherwise.
+     */
+    public boolean isClosed(int id) {
+        return marks[id] == generation + 1;
+    }
+
+    /**
+     * Marks the given cell as expanded.
+     *
+     * @param id The id of the cell.
+     */
+    public void markClosed(int id) {
+        marks[id] = generation + 1;
+        expandedCount++;
+    }
+
+    /**
+     * Gets the number of cells expanded by the current search so far, without scanning the grid.
+     *
+     * @return The number of cells marked as closed since the search started.
+     */
+    public int getExpandedCount() {
+        return expandedCount;
+    }
+
+    /**
+     * Opens a cell with the given key, or lowers its key if it is already open. The cell's G Score
+     * goes along to break ties, so it must be updated first.
+     *
+     * @param id  The id of the cell.
+     * @param key The key of the cell on the open list.
+     */
+    public void open(int id, int key) {
+        if (openList.contains(id)) {
+            openList.decreaseKey(id, key, getGScore(id));
+            decreaseKeyCount++;
+        } else {
+            openList.push(id, key, getGScore(id));
+            pushCount++;
+            if (openList.size() > maxOpenSize) {
+                maxOpenSize = openList.size();
+            }
+        }
+    }
+
+    /**
+     * Opens a cell in one of the extra heaps, or changes its key if it is open already, counting
+     * it as {@link #open} counts the open list. Searches that keep their open cells in more than
+     * one order open them here in the heap that holds all of them, so their counts compare with
+     * those of other searches.
+     *
+     * @param heap The extra heap holding every open cell.
+     * @param id   The id of the cell.
+     * @param key  The key of the cell.
+     */
+    void openExtra(IndexedBinaryHeap heap, int id, long key) {
+        if (heap.contains(id)) {
+            heap.update(id, key);
+            decreaseKeyCount++;
+        } else {
+            heap.insert(id, key);
+            pushCount++;
+            if (heap.size() > maxOpenSize) {
+                maxOpenSize = heap.size();
+            }
+        }
+    }
+
+    /**
+     * Describes the last search run with {@link #run}.
+     *
+     * @return The counts, cost and time of the search.
+     */
+    public SearchStats getStats() {
+        int pathCost = found ? findPathCost() : -1;
+        int bound = !found ? -1 : optimal ? pathCost : lowerBound;
+        return new SearchStats(found, expandedCount, pushCount, decreaseKeyCount, maxOpenSize, pathCost, bound,
+                wallTime);
+    }
+
+    /**
+     * Adds up the cost of every step on the path found by the last search. Steps between cells
+     * that are not neighbors, as in the waypoints of {@link ThetaStarSearch}, cost the length of
+     * the straight line between them.
+     *
+     * @return The cost of the path.
+     */
+    private int findPathCost() {
+        int width = grid.getWidth();
+        int cost = 0;
+        for (int i = 1; i < pathLength; i++) {
+            int xDiff = Math.abs(path[i - 1] % width - path[i] % width);
+            int yDiff = Math.abs(path[i - 1] / width - path[i] / width);
+            if (xDiff > 1 || yDiff > 1) {
+                cost += ThetaStarSearch.lineCost(path[i - 1], path[i], width);
+            } else {
+                boolean diagonal = xDiff != 0 && yDiff != 0;
+                cost += grid.getStepCost(path[i - 1], path[i],
+                        diagonal ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Sets the listener told about every search run with {@link #run}.
+     *
+     * @param listener The listener, or null to stop telling anyone.
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the index used by {@link #run} to turn down queries that can not find a path. The
+     * index must be built on the same grid as this context.
+     *
+     * @param componentIndex The index, or null to always search.
+     */
+    public void setComponentIndex(ComponentIndex componentIndex) {
+        this.componentIndex = componentIndex;
+    }
+
+    /**
+     * Gets the G Score of a cell in the current search.
+     *
+     * @param id The id of the cell.
+     * @return The G Score, or Integer.MAX_VALUE if the cell has not been reached.
+     */
+    public int getGScore(int id) {
+        return marks[id] >= generation ? gScores[id] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the cell the given cell came from in the current search.
+     *
+     * @param id The id of the cell.
+     * @return The id of the cell it came from, or -1 if there is none.
+     */
+    public int getCameFrom(int id) {
+        return marks[id] >= generation ? cameFrom[id] : -1;
+    }
+
+    /**
+     * Records a new G Score for a cell and the cell it came from. The cell is marked as seen.
+     *
+     * @param id     The id of the cell.
+     * @param gScore The new G Score.
+     * @param from   The id of the cell it came from, or -1 if there is none.
+     */
+    public void update(int id, int gScore, int from) {
+        gScores[id] = gScore;
+        cameFrom[id] = from;
+        if (marks[id] < generation) {
+            marks[id] = generation;
+        }
+    }
+
+    /**
+     * Builds the path to the goal by following where each cell came from. The path is kept in
+     * this context until the next search.
+     *
+     * @param goal The id of the goal cell.
+     */
+    public void buildPath(int goal) {
+        int length = 0;
+        for (int current = goal; current != -1; current = cameFrom[current]) {
+            length++;
+        }
+
+        int[] path = pathBuffer(length);
+        int current = goal;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = current;
+            current = cameFrom[current];
+        }
+    }
+
+    /**
+     * Makes room for a path of the given length, for searches that build the path themselves.
+     * The caller fills in the returned buffer from index 0, the start, to length - 1, the goal.
+     *
+     * @param length The number of cells on the path.
+     * @return The buffer to write the path into.
+     */
+    int[] pathBuffer(int length) {
+        if (path.length < length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        pathLength = length;
+        return path;
+    }
+
+    /**
+     * Gets the number of cells on the path found by the last search.
+     *
+     * @return The number of cells on the path, or 0 if no path was found.
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Gets a cell on the path found by the last search.
+     *
+     * @param index The index on the path, where 0 is the start.
+     * @return The id of the cell.
+     */
+    public int getPathCell(int index) {
+        return path[index];
+    }
+
+    /**
+     * Copies the path found by the last search.
+     *
+     * @return The cell ids on the path from start to goal, or null if no path was found.
+     */
+    public int[] copyPath() {
+        return pathLength == 0 ? null : Arrays.copyOf(path, pathLength);
+    }
+}
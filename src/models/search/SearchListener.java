@@ -0,0 +1,14 @@
+package models.search;
+
+/**
+ * Told about every search run through {@link SearchContext#run}. Listeners are called on the
+ * thread that ran the search, so they should be quick and thread safe if shared between contexts.
+ */
+public interface SearchListener {
+    /**
+     * Called once a search is done.
+     *
+     * @param stats What the search did.
+     */
+    void searchFinished(SearchStats stats);
+}
@@ -0,0 +1,62 @@
+package models.search;
+
+/**
+ * The search algorithms that can be used to find a path.
+ */
+public enum SearchMode {
+    /**
+     * Plain A*, which works on any grid.
+     */
+    A_STAR(new AStarSearch()),
+
+    /**
+     * Jump Point Search, which only queues jump points on uniform cost grids.
+     */
+    JUMP_POINT(new JumpPointSearch()),
+
+    /**
+     * A* from both ends at once, which gives up early when the goal is walled off.
+     */
+    BIDIRECTIONAL(new BidirectionalAStarSearch()),
+
+    /**
+     * Lazy Theta*, which finds any angle paths as waypoints joined by straight lines.
+     */
+    THETA_STAR(new ThetaStarSearch()),
+
+    /**
+     * Weighted A*, which finds paths at most {@link #DEFAULT_BOUND} times the cheapest path while
+     * expanding far fewer cells. Construct a {@link WeightedAStarSearch} for another bound.
+     */
+    WEIGHTED_A_STAR(new WeightedAStarSearch(SearchMode.DEFAULT_BOUND)),
+
+    /**
+     * Focal search, which finds paths at most {@link #DEFAULT_BOUND} times the cheapest path like
+     * weighted A*, and also reports how close to the cheapest path each one is, at the cost of
+     * more work per cell. Construct a {@link FocalSearch} for another bound.
+     */
+    FOCAL(new FocalSearch(SearchMode.DEFAULT_BOUND));
+
+    /**
+     * How many times the cheapest path the paths of the bounded suboptimal modes may cost.
+     */
+    public static final double DEFAULT_BOUND = 1.1;
+
+    /**
+     * The pathfinder running this mode's searches.
+     */
+    private final Pathfinder pathfinder;
+
+    SearchMode(Pathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+
+    /**
+     * Gets the pathfinder for this mode. It can be shared between threads.
+     *
+     * @return The pathfinder.
+     */
+    public Pathfinder getPathfinder() {
+        return pathfinder;
+    }
+}
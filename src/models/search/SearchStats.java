@@ -0,0 +1,164 @@
+package models.search;
+
+/**
+ * Describes what a single search did, to find out why a query was slow.
+ */
+public class SearchStats {
+    /**
+     * Did the search find a path?
+     */
+    private final boolean found;
+
+    /**
+     * The number of cells the search expanded, pushed onto the open list, and lowered the key of
+     * while open.
+     */
+    private final int expandedNodes, pushedNodes, decreaseKeys;
+
+    /**
+     * The most cells that were open at once.
+     */
+    private final int maxOpenSize;
+
+    /**
+     * The cost of the path found, or -1 if there is none.
+     */
+    private final int pathCost;
+
+    /**
+     * The least the cheapest path can cost, as proven by the search, or -1 if there is no path or
+     * the search can not tell. Searches that found the cheapest path report its cost.
+     */
+    private final int lowerBound;
+
+    /**
+     * How long the search took in nanoseconds.
+     */
+    private final long wallTime;
+
+    /**
+     * Creates new search stats.
+     *
+     * @param found         True if the search found a path, false otherwise.
+     * @param expandedNodes The number of cells the search expanded.
+     * @param pushedNodes   The number of cells pushed onto the open list.
+     * @param decreaseKeys  The number of times the key of an open cell was lowered.
+     * @param maxOpenSize   The most cells that were open at once.
+     * @param pathCost      The cost of the path found, or -1 if there is none.
+     * @param lowerBound    The least the cheapest path can cost, or -1 if there is no path or it
+     *                      is not known.
+     * @param wallTime      How long the search took in nanoseconds.
+     */
+    public SearchStats(boolean found, int expandedNodes, int pushedNodes, int decreaseKeys, int maxOpenSize,
+                       int pathCost, int lowerBound, long wallTime) {
+        this.found = found;
+        this.expandedNodes = expandedNodes;
+        this.pushedNodes = pushedNodes;
+        this.decreaseKeys = decreaseKeys;
+        this.maxOpenSize = maxOpenSize;
+        this.pathCost = pathCost;
+        this.lowerBound = lowerBound;
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * Did the search find a path?
+     *
+     * @return True if a path was found, false otherwise.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * Gets the number of cells the search expanded.
+     *
+     * @return The number of expanded cells.
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Gets the number of cells pushed onto the open list.
+     *
+     * @return The number of pushes.
+     */
+    public int getPushedNodes() {
+        return pushedNodes;
+    }
+
+    /**
+     * Gets the number of times the key of an open cell was lowered.
+     *
+     * @return The number of decrease-keys.
+     */
+    public int getDecreaseKeys() {
+        return decreaseKeys;
+    }
+
+    /**
+     * Gets the most cells that were open at once.
+     *
+     * @return The largest size of the open list.
+     */
+    public int getMaxOpenSize() {
+        return maxOpenSize;
+    }
+
+    /**
+     * Gets the cost of the path found.
+     *
+     * @return The cost of the path, or -1 if there is none.
+     */
+    public int getPathCost() {
+        return pathCost;
+    }
+
+    /**
+     * Gets the least the cheapest path can cost, as proven by the search.
+     *
+     * @return The lower bound, or -1 if there is no path or the search can not tell.
+     */
+    public int getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Gets how many times the cheapest path the path found costs at most, such as 1.05 for a path
+     * that is at most 5% longer than it has to be. This is the bound the search achieved, which
+     * is often tighter than the bound it guarantees.
+     *
+     * @return The suboptimality, 1 for the cheapest path, or NaN if there is no path or the search
+     *         can not tell how far from the cheapest path it is.
+     */
+    public double getSuboptimality() {
+        if (!found || lowerBound < 0) {
+            return Double.NaN;
+        }
+        return lowerBound == 0 || lowerBound >= pathCost ? 1 : (double) pathCost / lowerBound;
+    }
+
+    /**
+     * Gets how long the search took.
+     *
+     * @return The time taken in nanoseconds.
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats{" +
+                "found=" + found +
+                ", expandedNodes=" + expandedNodes +
+                ", pushedNodes=" + pushedNodes +
+                ", decreaseKeys=" + decreaseKeys +
+                ", maxOpenSize=" + maxOpenSize +
+                ", pathCost=" + pathCost +
+                ", lowerBound=" + lowerBound +
+                ", wallTime=" + wallTime +
+                '}';
+    }
+}
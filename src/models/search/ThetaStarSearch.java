@@ -0,0 +1,159 @@
+package models.search;
+
+import models.Grid;
+
+/**
+ * Any angle search with Lazy Theta*, which finds paths made of straight lines at any angle rather
+ * than steps between neighboring cells.
+ * <p>
+ * The search expands cells like {@link AStarSearch}, but a cell opened from another cell takes
+ * over that cell's parent, on the assumption that the parent can see it. The assumption is only
+ * checked with {@link Grid#hasLineOfSight(int, int)} once the cell is expanded, and if it fails,
+ * the cell falls back to the best neighbor it can step from. This needs one line of sight check
+ * per expanded cell rather than one per opened cell.
+ * <p>
+ * The path kept in the context is the waypoints where the path turns, joined by straight lines,
+ * and its cost is their length in {@link AStarSearch#STRAIGHT_COST} per cell. Paths are close to
+ * the shortest any angle path, but not always the shortest. Lines ignore cell costs and agents
+ * walking them move diagonally, so on grids with costs or without diagonal steps the search falls
+ * back to plain A*.
+ */
+public class ThetaStarSearch implements Pathfinder {
+    /**
+     * The search used when diagonal steps are not allowed or cells have costs.
+     */
+    private final AStarSearch fallback = new AStarSearch();
+
+    @Override
+    public boolean search(SearchContext context, int start, int goal, boolean checkDiagonals) {
+        Grid grid = context.getGrid();
+        if (!checkDiagonals || grid.hasCosts()) {
+            return fallback.search(context, start, goal, checkDiagonals);
+        }
+
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        OpenList openNodes = context.getOpenList();
+
+        context.reset();
+        context.update(start, 0, -1);
+        context.open(start, estimate(start, goal, width));
+
+        while (!openNodes.isEmpty()) {
+            int current = openNodes.poll();
+            int parent = context.getCameFrom(current);
+
+            // The cell was opened assuming its parent can see it. If not, step from the best
+            // neighbor that has been expanded instead, which the cell was opened from.
+            if (parent != -1 && !grid.hasLineOfSight(parent, current)) {
+                connectToNeighbor(context, current);
+                parent = context.getCameFrom(current);
+            }
+
+            if (current == goal) {
+                context.buildPath(goal);
+                return true;
+            }
+
+            context.markClosed(current);
+
+            // The start has no parent, so its neighbors step from it directly.
+            int origin = parent == -1 ? current : parent;
+            int originScore = context.getGScore(origin);
+            int x = current % width;
+            int y = current / width;
+
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if ((dx == 0 && dy == 0) || nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                        continue;
+                    }
+
+                    int neighbor = ny * width + nx;
+                    if (context.isClosed(neighbor) || grid.isObstacle(neighbor)) {
+                        continue;
+                    }
+
+                    int newGScore = originScore + lineCost(origin, neighbor, width);
+                    if (newGScore < context.getGScore(neighbor)) {
+                        context.update(neighbor, newGScore, origin);
+                        context.open(neighbor, newGScore + estimate(neighbor, goal, width));
+                    }
+                }
+            }
+        }
+
+        // If we can't find a path to the end, return nothing.
+        return false;
+    }
+
+    /**
+     * Makes a cell step from the expanded neighbor that gives it the lowest G Score, after its
+     * parent turned out not to see it.
+     *
+     * @param context The context holding the search's values.
+     * @param cell    The id of the cell.
+     */
+    private void connectToNeighbor(SearchContext context, int cell) {
+        Grid grid = context.getGrid();
+        int width = grid.getWidth();
+        int x = cell % width;
+        int y = cell / width;
+        int bestScore = Integer.MAX_VALUE;
+        int best = -1;
+
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = x + dx;
+                int ny = y + dy;
+                if ((dx == 0 && dy == 0) || nx < 0 || nx >= width || ny < 0 || ny >= grid.getHeight()) {
+                    continue;
+                }
+
+                int neighbor = ny * width + nx;
+                if (!context.isClosed(neighbor)) {
+                    continue;
+                }
+
+                int score = context.getGScore(neighbor)
+                        + (dx != 0 && dy != 0 ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+                if (score < bestScore) {
+                    bestScore = score;
+                    best = neighbor;
+                }
+            }
+        }
+        context.update(cell, bestScore, best);
+    }
+
+    /**
+     * Estimates the cost from a cell to the goal with the straight line distance.
+     *
+     * @param cell  The id of the cell.
+     * @param goal  The id of the goal cell.
+     * @param width The width of the grid.
+     * @return The estimated cost.
+     */
+    private static int estimate(int cell, int goal, int width) {
+        return Heuristics.EUCLIDEAN.estimate(Math.abs(cell % width - goal % width),
+                Math.abs(cell / width - goal / width));
+    }
+
+    /**
+     * Gets the cost of a straight line between the centers of two cells, rounded to the nearest
+     * whole cost. A step to a neighbor costs {@link AStarSearch#STRAIGHT_COST} or
+     * {@link AStarSearch#DIAGONAL_COST}, as in the other searches.
+     *
+     * @param a     The id of the first cell.
+     * @param b     The id of the second cell.
+     * @param width The width of the grid.
+     * @return The cost of the line.
+     */
+    static int lineCost(int a, int b, int width) {
+        long xDiff = a % width - b % width;
+        long yDiff = a / width - b / width;
+        return (int) Math.round(AStarSearch.STRAIGHT_COST * Math.sqrt(xDiff * xDiff + yDiff * yDiff));
+    }
+}
@@ -0,0 +1,145 @@
+package models.search;
+
+import models.Grid;
+
+/**
+ * Weighted A*, which inflates the heuristic by a weight so the search heads for the goal more
+ * greedily and expands fewer cells. The path found costs at most the weight times the cheapest
+ * path, as long as the heuristic never overestimates and never drops by more than a step costs
+ * from one cell to the next, as the built in heuristics do. Like A* it never expands a cell twice.
+ * <p>
+ * The search does not know how close to the cheapest path it got, so it reports the path's cost
+ * divided by the weight as the lower bound in {@link SearchContext#getStats()}. See
+ * {@link FocalSearch} for a search that tracks a tighter bound.
+ */
+public class WeightedAStarSearch implements Pathfinder {
+    /**
+     * The weight of the heuristic, so the path found costs at most this many times the cheapest
+     * path.
+     */
+    private final double weight;
+
+    /**
+     * The heuristics used with and without diagonal steps.
+     */
+    private final Heuristic diagonalHeuristic, straightHeuristic;
+
+    /**
+     * Creates a new weighted A* search using the tightest admissible heuristic for each kind of
+     * movement.
+     *
+     * @param weight The weight of the heuristic, at least 1. A weight of 1.1 finds paths at most
+     *               10% dearer than the cheapest.
+     */
+    public WeightedAStarSearch(double weight) {
+        this(weight, Heuristics.OCTILE, Heuristics.MANHATTAN);
+    }
+
+    /**
+     * Creates a new weighted A* search. The bound only holds if the heuristics never overestimate.
+     *
+     * @param weight            The weight of the heuristic, at least 1.
+     * @param diagonalHeuristic The heuristic to use when diagonal steps are allowed.
+     * @param straightHeuristic The heuristic to use when they are not.
+     */
+    public WeightedAStarSearch(double weight, Heuristic diagonalHeuristic, Heuristic straightHeuristic) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight must be at least 1, not " + weight + ".");
+        }
+
+        this.weight = weight;
+        this.diagonalHeuristic = diagonalHeuristic;
+        this.straightHeuristic = straightHeuristic;
+    }
+
+    /**
+     * Searches for a path from a start cell to a goal cell that costs at most the weight times the
+     * cheapest path. If a path is found it is kept in the context.
+     *
+     * @param context        The context holding the search's values.
+     * @param start          The id of the starting cell.
+     * @param goal           The id of the cell that we want to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return True if a path was found, false otherwise.
+     */
+    @Override
+    public boolean search(SearchContext context, int start, int goal, boolean checkDiagonals) {
+        Grid grid = context.getGrid();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        OpenList openNodes = context.getOpenList();
+        Heuristic heuristic = checkDiagonals ? diagonalHeuristic : straightHeuristic;
+
+        context.reset();
+        context.update(start, 0, -1);
+        context.open(start, weightedFScore(heuristic, start, goal, 0, width));
+
+        while (!openNodes.isEmpty()) {
+            int current = openNodes.poll();
+
+            if (current == goal) {
+                // Costs are whole numbers, so the cheapest path costs at least the next one up. The
+                // small margin keeps rounding errors from overshooting it.
+                context.setLowerBound((int) Math.ceil(context.getGScore(goal) / weight - 1e-9));
+                context.buildPath(goal);
+                return true;
+            }
+
+            context.markClosed(current);
+
+            int x = current % width;
+            int y = current / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if ((dx == 0 && dy == 0) || (!checkDiagonals && dx != 0 && dy != 0) || nx < 0 || nx >= width
+                            || ny < 0 || ny >= height) {
+                        continue;
+                    }
+
+                    int neighbor = ny * width + nx;
+                    if (context.isClosed(neighbor) || grid.isObstacle(neighbor)) {
+                        continue;
+                    }
+
+                    int newGScore = context.getGScore(current) + grid.getStepCost(current, neighbor,
+                            dx != 0 && dy != 0 ? AStarSearch.DIAGONAL_COST : AStarSearch.STRAIGHT_COST);
+                    if (newGScore >= context.getGScore(neighbor)) {
+                        continue;
+                    }
+
+                    context.update(neighbor, newGScore, current);
+                    context.open(neighbor, weightedFScore(heuristic, neighbor, goal, newGScore, width));
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the F Score of a cell with the heuristic inflated by the weight.
+     *
+     * @param heuristic The heuristic estimating the cost to the goal.
+     * @param cell      The id of the cell.
+     * @param goal      The id of the goal cell.
+     * @param gScore    The G Score of the cell.
+     * @param width     The width of the grid.
+     * @return The weighted F Score.
+     */
+    private int weightedFScore(Heuristic heuristic, int cell, int goal, int gScore, int width) {
+        int estimate = heuristic.estimate(cell, goal, Math.abs(cell % width - goal % width),
+                Math.abs(cell / width - goal / width));
+        return gScore + (int) (weight * estimate);
+    }
+
+    /**
+     * Gets the weight of the heuristic.
+     *
+     * @return The weight, which bounds how many times the cheapest path a path can cost.
+     */
+    public double getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,115 @@
+package services;
+
+import java.util.List;
+
+/**
+ * The paths found for a batch of queries, and how the batch was served.
+ */
+public class PathBatch {
+    /**
+     * The path of each query, in the same order as the queries, or null for queries without one.
+     */
+    private final List<int[]> paths;
+
+    /**
+     * The number of goals served by one shared distance field, and the number of queries they
+     * answered.
+     */
+    private final int sharedGoals, sharedQueries;
+
+    /**
+     * The time from submitting the batch until its last path was found, in nanoseconds.
+     */
+    private final long wallTime;
+
+    /**
+     * Creates a new batch result.
+     *
+     * @param paths         The path of each query, in the same order as the queries.
+     * @param sharedGoals   The number of goals served by one shared distance field.
+     * @param sharedQueries The number of queries answered from shared distance fields.
+     * @param wallTime      The time the batch took, in nanoseconds.
+     */
+    public PathBatch(List<int[]> paths, int sharedGoals, int sharedQueries, long wallTime) {
+        this.paths = paths;
+        this.sharedGoals = sharedGoals;
+        this.sharedQueries = sharedQueries;
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * Gets the path of each query.
+     *
+     * @return The cell ids on each path, in the same order as the queries, or null for queries
+     *         without a path.
+     */
+    public List<int[]> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Gets the number of queries in the batch.
+     *
+     * @return The number of queries.
+     */
+    public int getQueryCount() {
+        return paths.size();
+    }
+
+    /**
+     * Gets the number of goals whose queries were answered from one shared distance field.
+     *
+     * @return The number of shared goals.
+     */
+    public int getSharedGoals() {
+        return sharedGoals;
+    }
+
+    /**
+     * Gets the number of queries answered from shared distance fields rather than searched for
+     * one at a time.
+     *
+     * @return The number of shared queries.
+     */
+    public int getSharedQueries() {
+        return sharedQueries;
+    }
+
+    /**
+     * Gets the number of searches the batch ran: one for each shared goal, and one for each other
+     * query.
+     *
+     * @return The number of searches.
+     */
+    public int getSearchCount() {
+        return sharedGoals + paths.size() - sharedQueries;
+    }
+
+    /**
+     * Gets the time from submitting the batch until its last path was found.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Gets the number of queries the batch got through per second.
+     *
+     * @return The throughput in queries per second.
+     */
+    public double getQueriesPerSecond() {
+        return wallTime == 0 ? 0 : paths.size() * 1e9 / wallTime;
+    }
+
+    @Override
+    public String toString() {
+        return "services.PathBatch{" +
+                "queries=" + paths.size() +
+                ", sharedGoals=" + sharedGoals +
+                ", sharedQueries=" + sharedQueries +
+                ", wallTime=" + wallTime +
+                '}';
+    }
+}
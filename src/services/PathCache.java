@@ -0,0 +1,457 @@
+package services;
+
+import models.Grid;
+import models.GridListener;
+import models.search.Heuristic;
+import models.search.Heuristics;
+import models.search.SearchMode;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the paths of recent queries, so asking for the same start and goal again skips the
+ * search.
+ * <p>
+ * Only the exact same query is answered from the cache. A path kept for a nearby start or goal
+ * would not be the cheapest path for the query asked, so it is not reused.
+ * <p>
+ * The cache holds at most a given number of path cells in total, and evicts paths that were not
+ * used recently once it is full, with the clock algorithm: the paths sit in a ring in the order
+ * they were added, a lookup marks its path as used, and a hand sweeps the ring, giving used paths
+ * a second chance and evicting the others. This comes close to evicting the least recently used
+ * paths without sorting them, and without lookups having to lock to reorder anything. It listens
+ * to the grid and only drops the paths an edit can affect:
+ * <ul>
+ *     <li>paths crossing the changed cell, which may now be blocked or cost more, and</li>
+ *     <li>when the cell is open, paths that a detour through it could beat. A path through the
+ *     cell costs at least the distance from the start to the cell plus the distance from the cell
+ *     to the goal, so only paths costing more than that are dropped.</li>
+ * </ul>
+ * Lookups do not lock, so any number of threads can read at once. Adding paths and dropping them
+ * after an edit take a lock. A search that was running while the grid changed does not add its
+ * path, since it may have seen the grid half way through the change. Queries without a path are
+ * not kept.
+ */
+public class PathCache implements GridListener, AutoCloseable {
+    /**
+     * The share of the capacity a full cache is emptied to, so evictions happen in batches.
+     */
+    private static final double EVICT_TO = 0.9;
+
+    /**
+     * The grid the paths are found on.
+     */
+    private final Grid grid;
+
+    /**
+     * The search algorithm run on a miss.
+     */
+    private final SearchMode mode;
+
+    /**
+     * The most path cells the cache holds in total.
+     */
+    private final long maxCells;
+
+    /**
+     * The cached paths by their query.
+     */
+    private final ConcurrentHashMap<Long, Entry> entries;
+
+    /**
+     * The number of path cells held in total. Only changed while holding the lock.
+     */
+    private long cells;
+
+    /**
+     * The ring of paths the clock hand sweeps, in the order they were added, and the number of
+     * slots in use. Paths dropped from the cache stay in the ring until it is compacted. Only used
+     * while holding the lock.
+     */
+    private Entry[] ring;
+    private int ringSize;
+
+    /**
+     * The slot of the ring the clock hand points at, and the number of slots holding paths that
+     * were dropped from the cache.
+     */
+    private int hand, dropped;
+
+    /**
+     * The number of edits seen so far, so searches that ran during an edit can be spotted.
+     */
+    private volatile long version;
+
+    /**
+     * The counts of lookups, and of paths dropped because the cache was full or the grid changed.
+     */
+    private final LongAdder hits, misses, evictions, invalidations;
+
+    /**
+     * Creates a new cache and starts listening to the grid.
+     *
+     * @param grid     The grid the paths are found on.
+     * @param mode     The search algorithm run on a miss.
+     * @param maxCells The most path cells the cache holds in total.
+     */
+    public PathCache(Grid grid, SearchMode mode, long maxCells) {
+        this.grid = grid;
+        this.mode = mode;
+        this.maxCells = maxCells;
+        entries = new ConcurrentHashMap<>();
+        ring = new Entry[16];
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+        invalidations = new LongAdder();
+        grid.addGridListener(this);
+    }
+
+    /**
+     * Gets the path between two cells from the cache, or searches for it on the calling thread and
+     * keeps it.
+     *
+     * @param start          The id of the cell to start from.
+     * @param goal           The id of the cell to reach.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return A copy of the cell ids on the path from start to goal, or null if there is no path.
+     */
+    public int[] findPath(int start, int goal, boolean checkDiagonals) {
+        long key = key(start, goal, checkDiagonals);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            // Only written when it changes, so threads reading the same path do not fight over it.
+            if (!entry.used) {
+                entry.used = true;
+            }
+            return entry.path.clone();
+        }
+
+        misses.increment();
+        long searchVersion = version;
+        int[] path = grid.findPath(start, goal, checkDiagonals, mode);
+        if (path == null) {
+            return null;
+        }
+
+        add(key, new Entry(start, goal, checkDiagonals, path, grid.getLastSearchStats().getPathCost(),
+                grid.getWidth()), searchVersion);
+        return path.clone();
+    }
+
+    /**
+     * Adds a path to the cache, unless the grid changed while it was searched for, and evicts
+     * paths that were not used recently if the cache is full.
+     *
+     * @param key           The key of the query.
+     * @param entry         The path.
+     * @param searchVersion The version of the grid when the search started.
+     */
+    private synchronized void add(long key, Entry entry, long searchVersion) {
+        if (version != searchVersion || entry.path.length > maxCells) {
+            return;
+        }
+
+        Entry old = entries.put(key, entry);
+        cells += entry.path.length;
+        if (old != null) {
+            cells -= old.path.length;
+            drop(old);
+        }
+        if (ringSize == ring.length) {
+            compact();
+        }
+        ring[ringSize++] = entry;
+        if (cells <= maxCells) {
+            return;
+        }
+
+        // Two turns of the hand clear every used mark and then reach every path, so the loop ends
+        // even if the new path alone is above the target.
+        long target = (long) (maxCells * EVICT_TO);
+        for (int steps = 2 * ringSize; steps > 0 && cells > target; steps--) {
+            if (hand >= ringSize) {
+                hand = 0;
+            }
+            Entry candidate = ring[hand++];
+            if (candidate.dropped || candidate == entry) {
+                continue;
+            }
+            if (candidate.used) {
+                candidate.used = false;
+            } else {
+                remove(candidate);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes a path from the cache.
+     *
+     * @param entry The path to remove.
+     */
+    private void remove(Entry entry) {
+        if (entries.remove(key(entry.start, entry.goal, entry.checkDiagonals), entry)) {
+            cells -= entry.path.length;
+            drop(entry);
+        }
+    }
+
+    /**
+     * Marks a path that left the cache, so the clock hand passes over it until the ring is
+     * compacted.
+     *
+     * @param entry The path that left the cache.
+     */
+    private void drop(Entry entry) {
+        entry.dropped = true;
+        dropped++;
+    }
+
+    /**
+     * Makes room at the end of the ring, by removing the paths that left the cache if they take
+     * up at least half of it, and otherwise by growing it. Either way the ring is only copied
+     * after as many paths were added or dropped as it holds, so this is O(1) amortized.
+     */
+    private void compact() {
+        if (dropped * 2 < ringSize) {
+            ring = Arrays.copyOf(ring, ring.length * 2);
+            return;
+        }
+
+        // The paths keep their order, starting from the hand, so none lose their place in line.
+        Entry[] kept = new Entry[ring.length];
+        int count = 0;
+        for (int i = 0; i < ringSize; i++) {
+            Entry entry = ring[(hand + i) % ringSize];
+            if (!entry.dropped) {
+                kept[count++] = entry;
+            }
+        }
+        ring = kept;
+        ringSize = count;
+        hand = 0;
+        dropped = 0;
+    }
+
+    @Override
+    public synchronized void cellChanged(Grid grid, int id) {
+        version++;
+
+        int width = grid.getWidth();
+        int x = id % width;
+        int y = id / width;
+        boolean open = !grid.isObstacle(id);
+        for (Entry entry : entries.values()) {
+            if (entry.crosses(id, x, y, width) || open && couldShortcut(entry, x, y, width)) {
+                remove(entry);
+                invalidations.increment();
+            }
+        }
+        if (dropped > 0 && dropped * 2 >= ringSize) {
+            compact();
+        }
+    }
+
+    /**
+     * Could a path through a cell be cheaper than a cached path? Every path through the cell
+     * costs at least the distance from the start to the cell and on to the goal, measured with
+     * the tightest heuristic that never overestimates for the path's movement.
+     *
+     * @param entry The cached path.
+     * @param x     The X coordinate of the cell.
+     * @param y     The Y coordinate of the cell.
+     * @param width The width of the grid.
+     * @return True if a path through the cell could be cheaper, false otherwise.
+     */
+    private boolean couldShortcut(Entry entry, int x, int y, int width) {
+        Heuristic bound = !entry.checkDiagonals ? Heuristics.MANHATTAN
+                : mode == SearchMode.THETA_STAR ? Heuristics.EUCLIDEAN : Heuristics.OCTILE;
+        long through = (long) bound.estimate(Math.abs(entry.start % width - x), Math.abs(entry.start / width - y))
+                + bound.estimate(Math.abs(entry.goal % width - x), Math.abs(entry.goal / width - y));
+        return through < entry.cost;
+    }
+
+    /**
+     * Packs a query into a key.
+     *
+     * @param start          The id of the start cell.
+     * @param goal           The id of the goal cell.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The key.
+     */
+    private static long key(int start, int goal, boolean checkDiagonals) {
+        return (long) start << 33 | (long) goal << 1 | (checkDiagonals ? 1 : 0);
+    }
+
+    /**
+     * Removes every path from the cache.
+     */
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+        cells = 0;
+        ring = new Entry[16];
+        ringSize = 0;
+        hand = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to search.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the share of lookups answered from the cache.
+     *
+     * @return The hit rate from 0 to 1, or 0 before the first lookup.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Gets the number of paths evicted because the cache was full.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the number of paths dropped because a cell they depend on changed.
+     *
+     * @return The number of invalidations.
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Gets the number of paths in the cache.
+     *
+     * @return The number of paths.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stops listening to the grid and empties the cache.
+     */
+    @Override
+    public void close() {
+        grid.removeGridListener(this);
+        clear();
+    }
+
+    /**
+     * A cached path, with the box around it so most edits can be ruled out without looking at
+     * every cell.
+     */
+    private static class Entry {
+        private final int start, goal;
+        private final boolean checkDiagonals;
+        private final int[] path;
+        private final int cost;
+        private final int minX, minY, maxX, maxY;
+
+        /**
+         * Was the path used since the clock hand last passed it? A path that was gets a second
+         * chance rather than being evicted. A new path counts as used.
+         */
+        private volatile boolean used = true;
+
+        /**
+         * Has the path left the cache? Only used while holding the cache's lock.
+         */
+        private boolean dropped;
+
+        /**
+         * Creates a new cached path.
+         *
+         * @param start          The id of the start cell.
+         * @param goal           The id of the goal cell.
+         * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+         * @param path           The cell ids on the path, or the waypoints of an any angle path.
+         * @param cost           The cost of the path.
+         * @param width          The width of the grid.
+         */
+        Entry(int start, int goal, boolean checkDiagonals, int[] path, int cost, int width) {
+            this.start = start;
+            this.goal = goal;
+            this.checkDiagonals = checkDiagonals;
+            this.path = path;
+            this.cost = cost;
+
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+            for (int cell : path) {
+                minX = Math.min(minX, cell % width);
+                minY = Math.min(minY, cell / width);
+                maxX = Math.max(maxX, cell % width);
+                maxY = Math.max(maxY, cell / width);
+            }
+            // Lines between waypoints are blocked by obstacles touching them at a corner, so the
+            // box reaches one cell further.
+            this.minX = minX - 1;
+            this.minY = minY - 1;
+            this.maxX = maxX + 1;
+            this.maxY = maxY + 1;
+        }
+
+        /**
+         * Does the path cross a cell? Steps between neighbors only depend on the two cells they
+         * join, while any angle lines between waypoints depend on every cell in the box around them.
+         *
+         * @param id    The id of the cell.
+         * @param x     The X coordinate of the cell.
+         * @param y     The Y coordinate of the cell.
+         * @param width The width of the grid.
+         * @return True if the path may depend on the cell, false otherwise.
+         */
+        boolean crosses(int id, int x, int y, int width) {
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                return false;
+            }
+
+            for (int i = 0; i < path.length; i++) {
+                if (path[i] == id) {
+                    return true;
+                }
+                if (i > 0) {
+                    int ax = path[i - 1] % width;
+                    int ay = path[i - 1] / width;
+                    int bx = path[i] % width;
+                    int by = path[i] / width;
+                    boolean line = Math.abs(ax - bx) > 1 || Math.abs(ay - by) > 1;
+                    if (line && x >= Math.min(ax, bx) - 1 && x <= Math.max(ax, bx) + 1
+                            && y >= Math.min(ay, by) - 1 && y <= Math.max(ay, by) + 1) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package services;
+
+/**
+ * A request for a path from a start cell to a goal cell.
+ */
+public class PathQuery {
+    /**
+     * The ids of the start and goal cells.
+     */
+    private final int start, goal;
+
+    /**
+     * Creates a new path query.
+     *
+     * @param start The id of the start cell.
+     * @param goal  The id of the goal cell.
+     */
+    public PathQuery(int start, int goal) {
+        this.start = start;
+        this.goal = goal;
+    }
+
+    /**
+     * Gets the id of the start cell.
+     *
+     * @return The id of the start cell.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the id of the goal cell.
+     *
+     * @return The id of the goal cell.
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    @Override
+    public String toString() {
+        return "services.PathQuery{" +
+                "start=" + start +
+                ", goal=" + goal +
+                '}';
+    }
+}
@@ -0,0 +1,389 @@
+package services;
+
+import models.Grid;
+import models.search.DistanceField;
+import models.search.FieldBuffers;
+import models.search.PathProcessor;
+import models.search.SearchContext;
+import models.search.SearchListener;
+import models.search.SearchMode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Runs path queries against a shared grid on an executor.
+ * <p>
+ * Searches only read the grid, so they can run in parallel as long as the grid is not changed
+ * meanwhile. Each running search borrows a {@link SearchContext} from a pool and hands it back
+ * once it is done, so a context is only created when more searches run at once than ever before.
+ * This keeps the number of contexts bounded even when every query runs on its own virtual thread.
+ * <p>
+ * Batches often send many agents to the same goal. Once a goal has enough queries in a batch, they
+ * are answered from one {@link DistanceField} worked out from the goal, instead of one search
+ * each. The fields are pooled like the contexts.
+ */
+public class PathService implements AutoCloseable {
+    /**
+     * The logger for notes about how the service runs.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PathService.class.getName());
+
+    /**
+     * The number of queries to the same goal in a batch from which they share a distance field,
+     * unless set otherwise.
+     */
+    public static final int DEFAULT_SHARED_GOAL_THRESHOLD = 32;
+
+    /**
+     * The grid the queries are run against.
+     */
+    private final Grid grid;
+
+    /**
+     * The executor the searches run on.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Should the executor be shut down when this service is closed?
+     */
+    private final boolean ownsExecutor;
+
+    /**
+     * The search algorithm run for each query.
+     */
+    private volatile SearchMode mode;
+
+    /**
+     * Told about every search, or null if nobody is listening.
+     */
+    private volatile SearchListener listener;
+
+    /**
+     * The stages every path found is run through.
+     */
+    private volatile PathProcessor[] processors;
+
+    /**
+     * The contexts that are not in use by a running search.
+     */
+    private final ConcurrentLinkedQueue<SearchContext> contexts;
+
+    /**
+     * The distance fields, with the queue or heap their search works in, that are not in use by a
+     * running shared search.
+     */
+    private final ConcurrentLinkedQueue<FieldBuffers> fields;
+
+    /**
+     * The number of queries to the same goal in a batch from which they share a distance field.
+     */
+    private volatile int sharedGoalThreshold;
+
+    /**
+     * Creates a new path service that runs its searches on the given executor. The executor is
+     * not shut down when this service is closed.
+     *
+     * @param grid     The grid the queries are run against.
+     * @param executor The executor the searches run on.
+     */
+    public PathService(Grid grid, ExecutorService executor) {
+        this(grid, executor, false);
+    }
+
+    /**
+     * Creates a new path service.
+     *
+     * @param grid         The grid the queries are run against.
+     * @param executor     The executor the searches run on.
+     * @param ownsExecutor True if the executor should be shut down when this service is closed.
+     */
+    private PathService(Grid grid, ExecutorService executor, boolean ownsExecutor) {
+        this.grid = grid;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        mode = SearchMode.A_STAR;
+        processors = new PathProcessor[0];
+        contexts = new ConcurrentLinkedQueue<>();
+        fields = new ConcurrentLinkedQueue<>();
+        sharedGoalThreshold = DEFAULT_SHARED_GOAL_THRESHOLD;
+    }
+
+    /**
+     * Creates a new path service that runs its searches on a fixed pool of platform threads.
+     *
+     * @param grid    The grid the queries are run against.
+     * @param threads The number of threads in the pool.
+     * @return The path service, which shuts its pool down when closed.
+     */
+    public static PathService withThreadPool(Grid grid, int threads) {
+        return new PathService(grid, Executors.newFixedThreadPool(threads), true);
+    }
+
+    /**
+     * Creates a new path service that runs every search on its own virtual thread. Virtual threads
+     * need Java 21 or newer. On older versions the searches run on a fixed pool of platform
+     * threads instead, one for each processor, and a note is logged.
+     *
+     * @param grid The grid the queries are run against.
+     * @return The path service, which shuts its executor down when closed.
+     */
+    public static PathService withVirtualThreads(Grid grid) {
+        ExecutorService executor;
+        try {
+            // Looked up by reflection so the project still builds and runs on older versions.
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            LOGGER.info("Virtual threads need Java 21 or newer, using a pool of " + threads
+                    + " platform threads instead.");
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        return new PathService(grid, executor, true);
+    }
+
+    /**
+     * Finds the path for a single query.
+     *
+     * @param query          The query to find the path for.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return A future of the cell ids on the path from start to goal, which completes with null
+     * if there is no path.
+     */
+    public CompletableFuture<int[]> findPath(PathQuery query, boolean checkDiagonals) {
+        SearchMode mode = this.mode;
+        return CompletableFuture.supplyAsync(() -> search(query, mode, checkDiagonals), executor);
+    }
+
+    /**
+     * Finds the paths for a batch of queries. Queries to a goal shared by enough queries are
+     * answered from one distance field, and the others run in parallel on the executor.
+     *
+     * @param queries        The queries to find the paths for.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The future of each query's path, in the same order as the queries.
+     */
+    public List<CompletableFuture<int[]>> findPaths(List<PathQuery> queries, boolean checkDiagonals) {
+        List<CompletableFuture<int[]>> paths = new ArrayList<>(queries.size());
+        submit(queries, checkDiagonals, paths);
+        return paths;
+    }
+
+    /**
+     * Finds the paths for a batch of queries like {@link #findPaths(List, boolean)}, and reports
+     * how the batch was served and how long it took.
+     *
+     * @param queries        The queries to find the paths for.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return A future of the batch, which completes once every path is found.
+     */
+    public CompletableFuture<PathBatch> findPathBatch(List<PathQuery> queries, boolean checkDiagonals) {
+        long startTime = System.nanoTime();
+        List<CompletableFuture<int[]>> futures = new ArrayList<>(queries.size());
+        List<List<Integer>> shared = submit(queries, checkDiagonals, futures);
+        int sharedQueries = shared.stream().mapToInt(List::size).sum();
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<int[]> paths = new ArrayList<>(futures.size());
+            for (CompletableFuture<int[]> future : futures) {
+                paths.add(future.join());
+            }
+            return new PathBatch(paths, shared.size(), sharedQueries, System.nanoTime() - startTime);
+        });
+    }
+
+    /**
+     * Groups a batch of queries by goal, and submits one shared search for every goal with enough
+     * queries and one search for every other query.
+     *
+     * @param queries        The queries to find the paths for.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param paths          The list to add the future of each query's path to, in the same order
+     *                       as the queries.
+     * @return The indices of the queries of every goal that shares a distance field.
+     */
+    private List<List<Integer>> submit(List<PathQuery> queries, boolean checkDiagonals,
+                                       List<CompletableFuture<int[]>> paths) {
+        SearchMode mode = this.mode;
+        int threshold = sharedGoalThreshold;
+        for (int i = 0; i < queries.size(); i++) {
+            paths.add(null);
+        }
+
+        // Distance fields give paths of steps between neighbors, which Theta* does not.
+        Map<Integer, List<Integer>> byGoal = new LinkedHashMap<>();
+        if (mode != SearchMode.THETA_STAR) {
+            for (int i = 0; i < queries.size(); i++) {
+                byGoal.computeIfAbsent(queries.get(i).getGoal(), goal -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<List<Integer>> shared = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> group : byGoal.entrySet()) {
+            if (group.getValue().size() >= threshold) {
+                searchShared(queries, group.getKey(), group.getValue(), checkDiagonals, paths);
+                shared.add(group.getValue());
+            }
+        }
+
+        for (int i = 0; i < queries.size(); i++) {
+            if (paths.get(i) == null) {
+                paths.set(i, findPath(queries.get(i), checkDiagonals));
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Answers every query to a goal from one search outwards from the goal on the executor, which
+     * stops once it has reached every start. The search listener is not told about these, since
+     * they are not single searches.
+     *
+     * @param queries        The queries of the batch.
+     * @param goal           The id of the goal cell.
+     * @param indices        The indices of the queries to the goal.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @param paths          The list to set the future of each query's path in.
+     */
+    private void searchShared(List<PathQuery> queries, int goal, List<Integer> indices, boolean checkDiagonals,
+                              List<CompletableFuture<int[]>> paths) {
+        List<CompletableFuture<int[]>> futures = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            CompletableFuture<int[]> future = new CompletableFuture<>();
+            paths.set(index, future);
+            futures.add(future);
+        }
+
+        executor.execute(() -> {
+            FieldBuffers buffers = fields.poll();
+            if (buffers == null) {
+                buffers = new FieldBuffers(grid.getWidth() * grid.getHeight());
+            }
+
+            try {
+                int[] starts = new int[indices.size()];
+                for (int i = 0; i < starts.length; i++) {
+                    starts[i] = queries.get(indices.get(i)).getStart();
+                }
+
+                // The search stops once it has reached every start, rather than searching the grid.
+                DistanceField.compute(grid, new int[]{goal}, checkDiagonals, starts, buffers);
+                int[] distances = buffers.getDistances();
+                for (int i = 0; i < starts.length; i++) {
+                    // The other searches find a path from a cell to itself even if it is an obstacle.
+                    int[] path = starts[i] == goal ? new int[]{goal}
+                            : DistanceField.tracePath(grid, distances, starts[i], checkDiagonals);
+                    futures.get(i).complete(path == null ? null : process(path));
+                }
+            } catch (RuntimeException e) {
+                for (CompletableFuture<int[]> future : futures) {
+                    future.completeExceptionally(e);
+                }
+            } finally {
+                fields.offer(buffers);
+            }
+        });
+    }
+
+    /**
+     * Runs a single search on the calling thread with a borrowed context.
+     *
+     * @param query          The query to find the path for.
+     * @param mode           The search algorithm to use.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     * @return The cell ids on the path from start to goal, or null if there is no path.
+     */
+    private int[] search(PathQuery query, SearchMode mode, boolean checkDiagonals) {
+        SearchContext context = contexts.poll();
+        if (context == null || context.getOpenListType() != grid.getOpenListType()) {
+            // Contexts with another kind of open list than the grid's are dropped from the pool.
+            context = new SearchContext(grid, grid.getOpenListType());
+        }
+
+        try {
+            context.setSearchListener(listener);
+            context.setComponentIndex(grid.getComponentIndex());
+            if (!context.run(mode.getPathfinder(), query.getStart(), query.getGoal(), checkDiagonals)) {
+                return null;
+            }
+            return process(context.copyPath());
+        } finally {
+            contexts.offer(context);
+        }
+    }
+
+    /**
+     * Runs a path through the stages set with {@link #setPathProcessors(PathProcessor...)}.
+     *
+     * @param path The cell ids on the path.
+     * @return The processed path.
+     */
+    private int[] process(int[] path) {
+        for (PathProcessor processor : processors) {
+            path = processor.process(grid, path);
+        }
+        return path;
+    }
+
+    /**
+     * Sets the search algorithm used by the queries submitted from now on. A* is used by default.
+     *
+     * @param mode The search algorithm.
+     */
+    public void setSearchMode(SearchMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Sets the stages every path found from now on is run through, in order, such as
+     * {@link models.search.PathProcessors#REMOVE_COLLINEAR}. Paths are not processed by default.
+     *
+     * @param processors The stages to run.
+     */
+    public void setPathProcessors(PathProcessor... processors) {
+        this.processors = processors.clone();
+    }
+
+    /**
+     * Sets how many queries to the same goal a batch needs before they share one distance field.
+     * The shared search has no heuristic and runs until it reaches the farthest start, so it
+     * usually expands many times more cells than a single A* search, and only pays off for goals
+     * with many queries. {@value #DEFAULT_SHARED_GOAL_THRESHOLD} by default.
+     *
+     * @param threshold The number of queries, or {@link Integer#MAX_VALUE} to never share.
+     */
+    public void setSharedGoalThreshold(int threshold) {
+        this.sharedGoalThreshold = Math.max(1, threshold);
+    }
+
+    /**
+     * Sets the listener told about every search from now on, such as a {@link SearchMetrics}. It
+     * is called on the executor's threads.
+     *
+     * @param listener The listener, or null to stop telling anyone.
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the grid the queries are run against.
+     *
+     * @return The grid.
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package services;
+
+import models.search.SearchListener;
+import models.search.SearchStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up the stats of every search it is told about, so they can be watched in production.
+ * <p>
+ * Install it as the search listener of a {@link models.Grid} or a {@link PathService}, and
+ * {@link #register} it to see the counters and histograms in any JMX console. Recording a search
+ * only bumps a few striped counters, so one instance can be shared by every search thread.
+ */
+public class SearchMetrics implements SearchListener, SearchMetricsMBean {
+    /**
+     * The number of buckets in each histogram. The last one catches everything past 2^30.
+     */
+    private static final int BUCKETS = 32;
+
+    /**
+     * The running totals.
+     */
+    private final LongAdder searches, pathsFound, expandedNodes, pushedNodes, decreaseKeys, wallTime;
+
+    /**
+     * The largest open list seen.
+     */
+    private final LongAccumulator maxOpenSize;
+
+    /**
+     * The power of two histograms of search time in microseconds and of expanded cells.
+     */
+    private final LongAdder[] wallTimeHistogram, expandedNodesHistogram;
+
+    /**
+     * The name this is registered under, or null if it is not registered.
+     */
+    private ObjectName name;
+
+    /**
+     * Creates new search metrics with every counter at zero.
+     */
+    public SearchMetrics() {
+        searches = new LongAdder();
+        pathsFound = new LongAdder();
+        expandedNodes = new LongAdder();
+        pushedNodes = new LongAdder();
+        decreaseKeys = new LongAdder();
+        wallTime = new LongAdder();
+        maxOpenSize = new LongAccumulator(Math::max, 0);
+        wallTimeHistogram = newHistogram();
+        expandedNodesHistogram = newHistogram();
+    }
+
+    @Override
+    public void searchFinished(SearchStats stats) {
+        searches.increment();
+        if (stats.isFound()) {
+            pathsFound.increment();
+        }
+        expandedNodes.add(stats.getExpandedNodes());
+        pushedNodes.add(stats.getPushedNodes());
+        decreaseKeys.add(stats.getDecreaseKeys());
+        maxOpenSize.accumulate(stats.getMaxOpenSize());
+        wallTime.add(stats.getWallTime());
+        wallTimeHistogram[bucketOf(stats.getWallTime() / 1000)].increment();
+        expandedNodesHistogram[bucketOf(stats.getExpandedNodes())].increment();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     *
+     * @param name The name to tell these metrics apart from others, such as the name of the map.
+     * @throws JMException If the name is not valid or already taken.
+     */
+    public synchronized void register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("astarpathfinding:type=SearchMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.name = objectName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if they were registered.
+     *
+     * @throws JMException If the server no longer knows the name.
+     */
+    public synchronized void unregister() throws JMException {
+        if (name != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(name);
+            name = null;
+        }
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getPathsFound() {
+        return pathsFound.sum();
+    }
+
+    @Override
+    public long getExpandedNodes() {
+        return expandedNodes.sum();
+    }
+
+    @Override
+    public long getPushedNodes() {
+        return pushedNodes.sum();
+    }
+
+    @Override
+    public long getDecreaseKeys() {
+        return decreaseKeys.sum();
+    }
+
+    @Override
+    public long getMaxOpenSize() {
+        return maxOpenSize.get();
+    }
+
+    @Override
+    public double getMeanWallTimeMicros() {
+        long count = searches.sum();
+        return count == 0 ? 0 : wallTime.sum() / 1000.0 / count;
+    }
+
+    @Override
+    public long[] getWallTimeHistogram() {
+        return snapshot(wallTimeHistogram);
+    }
+
+    @Override
+    public long[] getExpandedNodesHistogram() {
+        return snapshot(expandedNodesHistogram);
+    }
+
+    @Override
+    public void reset() {
+        searches.reset();
+        pathsFound.reset();
+        expandedNodes.reset();
+        pushedNodes.reset();
+        decreaseKeys.reset();
+        wallTime.reset();
+        maxOpenSize.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            wallTimeHistogram[i].reset();
+            expandedNodesHistogram[i].reset();
+        }
+    }
+
+    /**
+     * Gets the histogram bucket of a value, which is the number of bits needed to write it.
+     *
+     * @param value The value, at least 0.
+     * @return The index of the bucket.
+     */
+    private static int bucketOf(long value) {
+        return Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+    }
+
+    /**
+     * Creates a histogram with every bucket at zero.
+     *
+     * @return The buckets of the histogram.
+     */
+    private static LongAdder[] newHistogram() {
+        LongAdder[] histogram = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = new LongAdder();
+        }
+        return histogram;
+    }
+
+    /**
+     * Reads the current count of every bucket of a histogram.
+     *
+     * @param histogram The buckets of the histogram.
+     * @return The count of each bucket.
+     */
+    private static long[] snapshot(LongAdder[] histogram) {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,78 @@
+package services;
+
+/**
+ * The management interface of {@link SearchMetrics}, as seen through JMX.
+ */
+public interface SearchMetricsMBean {
+    /**
+     * Gets the number of searches recorded.
+     *
+     * @return The number of searches.
+     */
+    long getSearches();
+
+    /**
+     * Gets the number of recorded searches that found a path.
+     *
+     * @return The number of paths found.
+     */
+    long getPathsFound();
+
+    /**
+     * Gets the number of cells expanded by every recorded search.
+     *
+     * @return The number of expanded cells.
+     */
+    long getExpandedNodes();
+
+    /**
+     * Gets the number of cells pushed onto the open list by every recorded search.
+     *
+     * @return The number of pushes.
+     */
+    long getPushedNodes();
+
+    /**
+     * Gets the number of decrease-keys done by every recorded search.
+     *
+     * @return The number of decrease-keys.
+     */
+    long getDecreaseKeys();
+
+    /**
+     * Gets the largest open list of any recorded search.
+     *
+     * @return The largest size of the open list.
+     */
+    long getMaxOpenSize();
+
+    /**
+     * Gets the average time a recorded search took.
+     *
+     * @return The mean time in microseconds, or 0 if nothing was recorded.
+     */
+    double getMeanWallTimeMicros();
+
+    /**
+     * Gets how many recorded searches fell into each time bucket. Bucket i counts the searches
+     * that took less than 2^i microseconds but not less than 2^(i-1), and the last bucket counts
+     * everything slower.
+     *
+     * @return The count of each bucket.
+     */
+    long[] getWallTimeHistogram();
+
+    /**
+     * Gets how many recorded searches fell into each expansion bucket. Bucket i counts the
+     * searches that expanded less than 2^i cells but not less than 2^(i-1), and the last bucket
+     * counts everything larger.
+     *
+     * @return The count of each bucket.
+     */
+    long[] getExpandedNodesHistogram();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
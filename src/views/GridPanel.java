@@ -58,9 +58,9 @@ public class GridPanel extends JPanel {
 
                 if (currentNode.isObstacle())
                     g2D.setColor(Color.darkGray);
-                else if (controller.getStart() != null && controller.getStart() == currentNode)
+                else if (controller.getStart() != null && controller.getStart().equals(currentNode))
                     g2D.setColor(Color.green);
-                else if (controller.getGoal() != null && controller.getGoal() == currentNode)
+                else if (controller.getGoal() != null && controller.getGoal().equals(currentNode))
                     g2D.setColor(Color.red);
                 else if (controller.getPath() != null && controller.getPath().contains(currentNode))
                     g2D.setColor(Color.cyan);
@@ -0,0 +1,57 @@
+package models;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that both storages tell whether any cell costs more than 1, so searches that only work
+ * on uniform costs are used again once every cost is back to 1.
+ */
+class GridStorageTest {
+    /**
+     * Setting costs and putting them back to 1 leaves a grid without costs, in both storages.
+     */
+    @Test
+    void costsBackToOneLeaveNoCosts() {
+        for (GridStorage storage : new GridStorage[]{new DenseGridStorage(100, 70),
+                new ChunkedGridStorage(100, 70)}) {
+            Grid grid = new Grid(storage);
+            assertFalse(grid.hasCosts());
+
+            grid.setCost(5, 3);
+            grid.setCost(6999, 200);
+            grid.setCost(5, 4);
+            assertTrue(grid.hasCosts());
+            assertEquals(20 * 4 / 2 + 20 / 2, grid.getStepCost(4, 5, 20));
+
+            grid.setCost(5, 1);
+            assertTrue(grid.hasCosts());
+            grid.setCost(6999, 1);
+            assertFalse(grid.hasCosts(), storage.getClass().getSimpleName());
+            assertEquals(14, grid.getStepCost(4, 5, 14));
+        }
+    }
+
+    /**
+     * A grid made on top of an existing cost layer counts the costs already in it.
+     */
+    @Test
+    void existingCostsAreCounted() {
+        byte[] costs = new byte[16];
+        Arrays.fill(costs, (byte) 1);
+        costs[3] = (byte) 255;
+        Grid grid = new Grid(4, 4, LongBuffer.allocate(1), ByteBuffer.wrap(costs));
+        assertTrue(grid.hasCosts());
+        assertEquals(255, grid.getCost(3));
+
+        grid.setCost(3, 1);
+        assertFalse(grid.hasCosts());
+    }
+}
@@ -0,0 +1,61 @@
+package models.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link BucketQueue} takes the cell with the lowest key first, and of the cells with
+ * the same key the one with the highest G Score, whatever order they were added in.
+ */
+class BucketQueueTest {
+    /**
+     * Cells with the same key come out from the highest G Score to the lowest, and those with the
+     * same G Score too from the last added to the first.
+     */
+    @Test
+    void tiesGoToTheHighestGScore() {
+        BucketQueue queue = new BucketQueue(8);
+        queue.push(0, 50, 20);
+        queue.push(1, 50, 40);
+        queue.push(2, 50, 10);
+        queue.push(3, 50, 40);
+        queue.push(4, 60, 60);
+
+        assertEquals(3, queue.poll());
+        // A cell added to the bucket being taken from goes in its place, not to the front.
+        queue.push(5, 50, 30);
+        queue.push(6, 50, 45);
+        assertEquals(6, queue.poll());
+        assertEquals(1, queue.poll());
+        assertEquals(5, queue.poll());
+        assertEquals(0, queue.poll());
+        assertEquals(2, queue.poll());
+        assertEquals(4, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * A cell whose key is lowered into a bucket is ordered by its new G Score, including when the
+     * bucket was below every other one.
+     */
+    @Test
+    void decreasedKeysKeepTheTieBreak() {
+        BucketQueue queue = new BucketQueue(8);
+        queue.push(0, 30, 10);
+        queue.push(1, 30, 5);
+        queue.push(2, 40, 1);
+        assertEquals(0, queue.peek());
+
+        queue.decreaseKey(2, 30, 8);
+        queue.push(3, 20, 0);
+        queue.push(4, 20, 3);
+        assertEquals(4, queue.poll());
+        assertEquals(3, queue.poll());
+        assertEquals(0, queue.poll());
+        assertEquals(2, queue.poll());
+        assertEquals(1, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,144 @@
+package models.search;
+
+import models.Grid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that agents moved by a {@link CooperativePlanner} never share a cell or pass through each
+ * other, including agents that can not reach their goals or are boxed in by a crowd.
+ */
+class CooperativePlannerTest {
+    /**
+     * An agent whose goal is walled off holds its cell, and the other agent plans around it
+     * instead of walking into it.
+     */
+    @Test
+    void agentWithUnreachableGoalIsNotWalkedInto() {
+        Grid grid = new Grid(10, 3);
+        grid.setObstacle(grid.cellId(8, 0), true);
+        grid.setObstacle(grid.cellId(8, 1), true);
+        grid.setObstacle(grid.cellId(9, 1), true);
+
+        try (CooperativePlanner planner = new CooperativePlanner(grid, true, 8, 8)) {
+            planner.addAgent(10, 17);
+            planner.addAgent(14, 9);
+            for (int step = 0; step < 24; step++) {
+                int[] before = positions(planner);
+                planner.step();
+                assertNoCollisions(grid, planner, before, true);
+            }
+            assertEquals(14, planner.getPosition(1));
+            assertTrue(planner.getFailedPlans() > 0);
+        }
+    }
+
+    /**
+     * Crowds on small random maps, where many agents are boxed in or head to walled off goals,
+     * never collide.
+     */
+    @Test
+    void denseCrowdsNeverCollide() {
+        Random random = new Random(11);
+        long failedPlans = 0;
+        for (int map = 0; map < 40; map++) {
+            int size = 10 + random.nextInt(31);
+            boolean checkDiagonals = random.nextBoolean();
+            Grid grid = new Grid(size, size);
+            for (int id = 0; id < size * size; id++) {
+                grid.setObstacle(id, random.nextInt(100) < 25);
+            }
+
+            int window = 2 + random.nextInt(8);
+            try (CooperativePlanner planner = new CooperativePlanner(grid, checkDiagonals, window,
+                    1 + random.nextInt(window))) {
+                boolean[] taken = new boolean[size * size];
+                int agents = size * size / 3;
+                for (int i = 0; i < agents; i++) {
+                    int start = random.nextInt(size * size);
+                    if (grid.isObstacle(start) || taken[start]) {
+                        continue;
+                    }
+                    taken[start] = true;
+                    planner.addAgent(start, random.nextInt(size * size));
+                }
+
+                for (int step = 0; step < 40; step++) {
+                    int[] before = positions(planner);
+                    planner.step();
+                    assertNoCollisions(grid, planner, before, checkDiagonals);
+                }
+                failedPlans += planner.getFailedPlans();
+            }
+        }
+
+        // The maps are crowded enough that plans fail, which is what this test is about.
+        assertTrue(failedPlans > 0);
+    }
+
+    /**
+     * A reservation is never taken over by another agent.
+     */
+    @Test
+    void reservationsAreNotTakenOver() {
+        ReservationTable reservations = new ReservationTable(4);
+        assertTrue(reservations.reserve(5, 2, 0));
+        assertFalse(reservations.reserve(5, 2, 1));
+        assertTrue(reservations.reserve(5, 2, 0));
+        assertEquals(0, reservations.getAgent(5, 2));
+    }
+
+    /**
+     * Gets the cell of every agent.
+     *
+     * @param planner The planner.
+     * @return The cell of every agent, by agent id.
+     */
+    private static int[] positions(CooperativePlanner planner) {
+        int[] positions = new int[planner.getAgentCount()];
+        for (int agent = 0; agent < positions.length; agent++) {
+            positions[agent] = planner.getPosition(agent);
+        }
+        return positions;
+    }
+
+    /**
+     * Checks that after a step every agent moved at most to a neighbor and not into a wall, that
+     * no two agents share a cell, and that no two agents swapped cells.
+     *
+     * @param grid           The grid.
+     * @param planner        The planner after the step.
+     * @param before         The cell of every agent before the step.
+     * @param checkDiagonals True if diagonal steps are allowed, false otherwise.
+     */
+    private static void assertNoCollisions(Grid grid, CooperativePlanner planner, int[] before,
+                                           boolean checkDiagonals) {
+        int width = grid.getWidth();
+        int[] holders = new int[width * grid.getHeight()];
+        for (int agent = 0; agent < before.length; agent++) {
+            int from = before[agent];
+            int to = planner.getPosition(agent);
+            int xDiff = Math.abs(from % width - to % width);
+            int yDiff = Math.abs(from / width - to / width);
+            assertTrue(xDiff <= 1 && yDiff <= 1 && (checkDiagonals || xDiff + yDiff <= 1),
+                    "Agent " + agent + " jumped from " + from + " to " + to);
+            assertTrue(from == to || !grid.isObstacle(to), "Agent " + agent + " walked into a wall");
+
+            assertEquals(0, holders[to], "Agents " + (holders[to] - 1) + " and " + agent + " share cell " + to
+                    + " at time " + planner.getTime());
+            holders[to] = agent + 1;
+        }
+
+        for (int agent = 0; agent < before.length; agent++) {
+            int other = holders[before[agent]] - 1;
+            int to = planner.getPosition(agent);
+            assertFalse(other >= 0 && other != agent && before[other] == to,
+                    "Agents " + agent + " and " + other + " swapped cells at time " + planner.getTime());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package models.search;
+
+import models.Grid;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the built in heuristics against the real cost of the cheapest path, worked out with
+ * Dijkstra's algorithm on an open grid, so none of them makes A* miss the shortest path.
+ */
+class HeuristicsTest {
+    /**
+     * The width and height of the open grid the costs are worked out on.
+     */
+    private static final int SIZE = 48;
+
+    /**
+     * With diagonal steps, every heuristic but Manhattan stays at or below the cost of the
+     * cheapest path, and octile is exact.
+     */
+    @Test
+    void heuristicsNeverOverestimateWithDiagonals() {
+        Grid grid = new Grid(SIZE, SIZE);
+        int[] costs = DistanceField.compute(grid, new int[]{0}, true);
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int cost = costs[grid.cellId(x, y)];
+                assertEquals(cost, Heuristics.OCTILE.estimate(x, y), "Octile at " + x + ", " + y);
+                for (Heuristics heuristic : new Heuristics[]{Heuristics.CHEBYSHEV, Heuristics.EUCLIDEAN}) {
+                    assertTrue(heuristic.estimate(x, y) <= cost, heuristic + " estimates "
+                            + heuristic.estimate(x, y) + " at " + x + ", " + y + " where a path costs " + cost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Without diagonal steps, every heuristic stays at or below the cost of the cheapest path, and
+     * Manhattan is exact.
+     */
+    @Test
+    void heuristicsNeverOverestimateWithoutDiagonals() {
+        Grid grid = new Grid(SIZE, SIZE);
+        int[] costs = DistanceField.compute(grid, new int[]{0}, false);
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int cost = costs[grid.cellId(x, y)];
+                assertEquals(cost, Heuristics.MANHATTAN.estimate(x, y), "Manhattan at " + x + ", " + y);
+                for (Heuristics heuristic : Heuristics.values()) {
+                    assertTrue(heuristic.estimate(x, y) <= cost, heuristic + " estimates "
+                            + heuristic.estimate(x, y) + " at " + x + ", " + y + " where a path costs " + cost);
+                }
+            }
+        }
+    }
+
+    /**
+     * The Euclidean estimate stays at or below the cost of a straight any angle line, so Theta*
+     * can use it.
+     */
+    @Test
+    void euclideanNeverExceedsLineCost() {
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int line = ThetaStarSearch.lineCost(0, y * SIZE + x, SIZE);
+                assertTrue(Heuristics.EUCLIDEAN.estimate(x, y) <= line, "Euclidean estimates "
+                        + Heuristics.EUCLIDEAN.estimate(x, y) + " at " + x + ", " + y + " where a line costs " + line);
+            }
+        }
+    }
+}
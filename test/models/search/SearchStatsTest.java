@@ -0,0 +1,74 @@
+package models.search;
+
+import models.Grid;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the lower bound and counts each kind of search reports, so searches that do not always
+ * find the cheapest path never claim to have found it.
+ */
+class SearchStatsTest {
+    /**
+     * A* with an admissible heuristic reports the cheapest path, one that may overestimate can not
+     * tell, and Theta* can not tell either.
+     */
+    @Test
+    void onlyOptimalSearchesReportTheCheapestPath() {
+        Grid grid = new Grid(16, 16);
+        SearchContext context = new SearchContext(grid);
+        int goal = grid.cellId(12, 9);
+
+        assertTrue(context.run(new AStarSearch(), 0, goal, true));
+        assertEquals(1, context.getStats().getSuboptimality());
+
+        assertTrue(context.run(new AStarSearch(Heuristics.MANHATTAN), 0, goal, true));
+        assertEquals(-1, context.getStats().getLowerBound());
+        assertTrue(Double.isNaN(context.getStats().getSuboptimality()));
+
+        assertTrue(context.run(new ThetaStarSearch(), 0, goal, true));
+        assertTrue(Double.isNaN(context.getStats().getSuboptimality()));
+    }
+
+    /**
+     * HPA* reports the distance across the open grid as its lower bound, rather than the cost of
+     * the path it found.
+     */
+    @Test
+    void hierarchicalSearchReportsTheOctileDistance() {
+        Grid grid = new Grid(32, 32);
+        for (int y = 0; y < 28; y++) {
+            grid.setObstacle(grid.cellId(15, y), true);
+        }
+        SearchContext context = new SearchContext(grid);
+        int goal = grid.cellId(30, 2);
+
+        assertTrue(context.run(new HierarchicalPathfinder(grid, 8, true), grid.cellId(1, 2), goal, true));
+        SearchStats stats = context.getStats();
+        assertEquals(Heuristics.OCTILE.estimate(29, 0), stats.getLowerBound());
+        assertTrue(stats.getSuboptimality() > 1);
+    }
+
+    /**
+     * Focal search counts the start and every cell it opens, as A* does, whichever of its lists
+     * the cell waits in.
+     */
+    @Test
+    void focalSearchCountsItsOpenCells() {
+        Grid grid = new Grid(16, 16);
+        SearchContext context = new SearchContext(grid);
+        int goal = grid.cellId(15, 15);
+
+        assertTrue(context.run(new FocalSearch(1.1), 0, goal, true));
+        SearchStats stats = context.getStats();
+        assertTrue(stats.getPushedNodes() >= stats.getExpandedNodes());
+        assertTrue(stats.getMaxOpenSize() > 0);
+
+        // Only the start is open when the goal is the start.
+        assertTrue(context.run(new FocalSearch(1.1), 0, 0, true));
+        assertEquals(1, context.getStats().getPushedNodes());
+        assertEquals(1, context.getStats().getMaxOpenSize());
+    }
+}